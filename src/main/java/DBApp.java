@@ -1,19 +1,44 @@
 import exceptions.*;
+import model.Aggregate.Aggregation;
+import model.IndexType;
 import model.Page.Page;
 import model.Page.PageReference;
+import model.Predicate.Comparison;
+import model.Predicate.Predicate;
+import model.Predicate.PredicateCompiler;
+import model.SQL.SQLLexer;
+import model.SQL.SQLParser;
+import model.SQL.SQLStatement;
+import model.SQL.StatementCache;
 import model.SQLTerm;
+import model.SelectOptions;
+import model.Schema.Column;
+import model.Schema.StorageLayout;
+import model.Schema.TableSchema;
 import model.Table;
 import model.Tuple;
+import model.TupleCursor;
+import utils.BufferPool;
+import utils.Catalog;
+import utils.DBConfig;
+import utils.ExternalSort;
+import utils.LogRecord;
 import utils.MetaDataManager;
 import utils.SerializationManager;
 import utils.Validation;
+import utils.WriteAheadLog;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.util.Vector;
 
 public class DBApp {
+    // set while init() replays the WriteAheadLog, replayed operations are not logged again
+    private static boolean isRecovering;
+
     public static void main(String[] args) throws DBAppException {
         DBApp dbApp = new DBApp();
         dbApp.init();
@@ -113,6 +138,7 @@ public class DBApp {
             page = SerializationManager.deserializePage(table.getTableName(), pageRef);
 
             System.out.print(page);
+            SerializationManager.releasePage(page);
         }
 
     }
@@ -121,11 +147,44 @@ public class DBApp {
     // or leave it empty if there is no code you want to
     // execute at application startup
     public void init() throws DBAppException {
-        try {
-            SerializationManager.createTablesFolder();
-            MetaDataManager.createMetaDataFolder();
-        } catch (IOException e) {
-            throw new DBQueryException("Error creating folders");
+        init(DBConfig.load());
+    }
+
+    // same as init() but with a custom config, e.g. DBConfig.load(overrides) for benchmarks
+    // With ResetOnInit = false the existing tables are kept and recovered from the WriteAheadLog
+    public void init(DBConfig config) throws DBAppException {
+        synchronized (DBApp.class) {
+            WriteAheadLog.close();
+            StatementCache.clear();
+            DBConfig.set(config);
+            if (config.isResetOnInit()) {
+                try {
+                    SerializationManager.createTablesFolder();
+                    MetaDataManager.createMetaDataFolder();
+                } catch (IOException e) {
+                    throw new DBQueryException("Error creating folders");
+                }
+            } else
+                recover();
+            BufferPool.resize();
+
+            if (config.getFlushPolicy() == DBConfig.FlushPolicy.CHECKPOINT)
+                WriteAheadLog.open();
+        }
+    }
+
+    // Writes every change held in memory to the table files and empties the WriteAheadLog
+    public void checkpoint() throws DBAppException {
+        synchronized (DBApp.class) {
+            SerializationManager.checkpoint();
+        }
+    }
+
+    // Checkpoints and closes the WriteAheadLog, the DBApp must be initialized again before being used
+    public void close() throws DBAppException {
+        synchronized (DBApp.class) {
+            SerializationManager.checkpoint();
+            WriteAheadLog.close();
         }
     }
 
@@ -139,6 +198,14 @@ public class DBApp {
     // for data in the column. Key is the name of the column
     public void createTable(String strTableName, String strClusteringKeyColumn, Hashtable<String, String> htblColNameType,
                             Hashtable<String, String> htblColNameMin, Hashtable<String, String> htblColNameMax) throws DBAppException {
+        createTable(strTableName, strClusteringKeyColumn, htblColNameType, htblColNameMin, htblColNameMax, StorageLayout.ROW);
+    }
+
+    // same as createTable but with the layout of the table's pages,
+    // StorageLayout.COLUMNAR suits tables whose selects compare few of their columns
+    public void createTable(String strTableName, String strClusteringKeyColumn, Hashtable<String, String> htblColNameType,
+                            Hashtable<String, String> htblColNameMin, Hashtable<String, String> htblColNameMax,
+                            StorageLayout storageLayout) throws DBAppException {
 
         if (Validation.isTableExists(strTableName))
             throw new DBAlreadyExistsException("Table already exists");
@@ -151,47 +218,77 @@ public class DBApp {
         if (!Validation.validateMinMax(htblColNameType, htblColNameMin, htblColNameMax))
             throw new DBSchemaException("min, max types do not match schema OR min > max");
 
-        MetaDataManager.createTableMetaData(strTableName, strClusteringKeyColumn, htblColNameType, htblColNameMin, htblColNameMax);
+        synchronized (DBApp.class) {
+            Catalog.createTable(strTableName, strClusteringKeyColumn, htblColNameType, htblColNameMin, htblColNameMax, storageLayout);
+            StatementCache.clear();
 
-        Table table = new Table(strTableName, strClusteringKeyColumn);
+            Table table = new Table(strTableName, strClusteringKeyColumn);
 
-        SerializationManager.serializeTable(table);
+            SerializationManager.serializeTable(table);
+            checkpointUnlogged();
+        }
     }
 
     // following method creates an octree
-    // depending on the count of column names passed.
-    // If three column names are passed, create an octree.
-    // If only one or two column names is passed, throw an Exception.
+    // if three column names are passed, and a B+-tree on the
+    // column names in the given order otherwise.
     public void createIndex(String strTableName, String[] strarrColName) throws DBAppException {
+        createIndex(strTableName, strarrColName, strarrColName.length == 3 ? IndexType.OCTREE : IndexType.B_PLUS_TREE);
+    }
+
+    // An octree needs exactly three columns, a B+-tree takes one or more
+    // and answers predicates on its leading columns.
+    // A column belongs to one index at most.
+    public void createIndex(String strTableName, String[] strarrColName, IndexType indexType) throws DBAppException {
         if (!Validation.isTableExists(strTableName))
             throw new DBNotFoundException("Table do not exist");
-        if (strarrColName.length != 3)
+        if (strarrColName.length == 0 || (indexType == IndexType.OCTREE && strarrColName.length != 3))
             throw new DBQueryException("Invalid number of columns to be indexed");
+        if (new HashSet<>(Arrays.asList(strarrColName)).size() != strarrColName.length)
+            throw new DBQueryException("A column is indexed more than once");
 
-        Hashtable<String, Hashtable<String, String>> htblColNameMetaData = MetaDataManager.getMetaData(strTableName);
-        if (!htblColNameMetaData.containsKey(strarrColName[0].toLowerCase())
-                || !htblColNameMetaData.containsKey(strarrColName[1].toLowerCase()) || !htblColNameMetaData.containsKey(strarrColName[2].toLowerCase()))
+        TableSchema schema = Catalog.getSchema(strTableName);
+        if (!schema.hasColumns(strarrColName))
             throw new DBSchemaException("Column names do not match table schema");
+        for (String colName : strarrColName)
+            if (schema.getColumn(colName).isIndexed())
+                throw new DBAlreadyExistsException("Column " + colName + " is already indexed");
 
-        Table table = SerializationManager.deserializeTable(strTableName);
-
-        String[] colNames = htblColNameMetaData.keySet().toArray(new String[0]);
         Hashtable<String, Object> min = new Hashtable<>();
         Hashtable<String, Object> max = new Hashtable<>();
-        for (String colName : colNames) {
-            String type = htblColNameMetaData.get(colName).get("ColumnType");
-            Object minValue = Validation.getComparable(htblColNameMetaData.get(colName).get("Min"), type);
-            Object maxValue = Validation.getComparable(htblColNameMetaData.get(colName).get("Max"), type);
+        for (int i = 0; i < schema.getColumnsCount(); i++) {
+            Column column = schema.getColumn(i);
+            min.put(column.getName(), column.getMin());
+            max.put(column.getName(), column.getMax());
+        }
+
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
+
+            table.createIndex(strarrColName, indexType, min, max);
 
-            min.put(colName, minValue);
-            max.put(colName, maxValue);
+            Catalog.createIndex(strTableName, strarrColName, indexType.toString());
+            StatementCache.clear();
+
+            SerializationManager.serializeTable(table);
+            checkpointUnlogged();
         }
+    }
 
-        table.createIndex(strarrColName, min, max);
+    // Collects the row counts and column histograms that selects use to choose between the indices and the scans.
+    // Statistics are not kept up to date by later changes, analyze again after large ones
+    public void analyzeTable(String strTableName) throws DBAppException {
+        if (!Validation.isTableExists(strTableName))
+            throw new DBNotFoundException("Table do not exist");
 
-        MetaDataManager.createIndex(strTableName, strarrColName);
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
 
-        SerializationManager.serializeTable(table);
+            table.analyze();
+
+            SerializationManager.serializeTable(table);
+            checkpointUnlogged();
+        }
     }
 
     // following method inserts one row only.
@@ -200,20 +297,68 @@ public class DBApp {
         if (!Validation.isTableExists(strTableName))
             throw new DBNotFoundException("Table do not exist");
 
-        Hashtable<String, Hashtable<String, String>> htblColNameMetaData = MetaDataManager.getMetaData(strTableName);
-        if (!htblColNameValue.keySet().equals(htblColNameMetaData.keySet()))
+        TableSchema schema = Catalog.getSchema(strTableName);
+        if (!htblColNameValue.keySet().equals(schema.getColNames()))
             throw new DBSchemaException("Column names do not match table schema");
-        if (!Validation.validateSchema(htblColNameValue, htblColNameMetaData))
+        if (!Validation.validateSchema(htblColNameValue, schema))
             throw new DBSchemaException("Columns metadata do not match table schema");
 
-        Table table = SerializationManager.deserializeTable(strTableName);
+        // copied, the tuple stays in the BufferPool after the call returns
+        htblColNameValue = new Hashtable<>(htblColNameValue);
 
-        String clusterKeyName = table.getClusterKeyName();
-        Tuple tuple = new Tuple(clusterKeyName, htblColNameValue);
+        long lsn;
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
 
-        table.insertTuple(tuple);
+            String clusterKeyName = table.getClusterKeyName();
+            Tuple tuple = new Tuple(clusterKeyName, htblColNameValue);
 
-        SerializationManager.serializeTable(table);
+            try {
+                table.insertTuple(tuple);
+
+                lsn = commit(table, LogRecord.insert(strTableName, htblColNameValue));
+            } catch (DBAlreadyExistsException e) { // checked before the table changes
+                throw e;
+            } catch (DBAppException | RuntimeException e) {
+                discardChanges(strTableName);
+                throw e;
+            }
+        }
+        waitDurable(lsn);
+    }
+
+    // inserts many rows at once, either all of them or none if one is invalid or already exists.
+    // Rows are sorted by clustering key (spilling sorted runs to disk when they do not fit in the BufferPool),
+    // merged with the table into fully packed pages, and every index is rebuilt in one pass.
+    public void bulkInsertIntoTable(String strTableName, Iterator<Hashtable<String, Object>> rows) throws DBAppException {
+        if (!Validation.isTableExists(strTableName))
+            throw new DBNotFoundException("Table do not exist");
+
+        TableSchema schema = Catalog.getSchema(strTableName);
+        int runSize = DBConfig.get().getMaxRowsCountInPage() * DBConfig.get().getBufferPoolSize();
+
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
+
+            try (ExternalSort sortedTuples = new ExternalSort(strTableName, runSize)) {
+                while (rows.hasNext()) {
+                    Hashtable<String, Object> htblColNameValue = new Hashtable<>(rows.next());
+                    if (!htblColNameValue.keySet().equals(schema.getColNames()))
+                        throw new DBSchemaException("Column names do not match table schema");
+                    if (!Validation.validateSchema(htblColNameValue, schema))
+                        throw new DBSchemaException("Columns metadata do not match table schema");
+
+                    sortedTuples.add(new Tuple(table.getClusterKeyName(), htblColNameValue));
+                }
+
+                table.bulkInsertTuples(sortedTuples);
+            }
+
+            SerializationManager.serializeTable(table);
+            if (DBConfig.get().getFlushPolicy() == DBConfig.FlushPolicy.ON_COMMIT)
+                BufferPool.flush(strTableName);
+            checkpointUnlogged();
+        }
     }
 
     // following method updates one row only
@@ -226,23 +371,38 @@ public class DBApp {
         if (!Validation.isTableExists(strTableName))
             throw new DBNotFoundException("Table do not exist");
 
-        Hashtable<String, Hashtable<String, String>> htblColNameMetaData = MetaDataManager.getMetaData(strTableName);
-        if (!Validation.validateSchema(htblColNameValue, htblColNameMetaData))
+        TableSchema schema = Catalog.getSchema(strTableName);
+        if (!Validation.validateSchema(htblColNameValue, schema))
             throw new DBSchemaException("Columns metadata do not match table schema");
 
-        Hashtable<String, String> htblClusteringKeyMetaData = MetaDataManager.getClusteringKeyMetaData(htblColNameMetaData);
-        if (htblClusteringKeyMetaData == null || !Validation.isNeededType(strClusteringKeyValue, htblClusteringKeyMetaData.get("ColumnType")))
+        Column clusteringKey = schema.getClusteringKey();
+        if (clusteringKey == null || !Validation.isNeededType(strClusteringKeyValue, clusteringKey.getTypeName()))
             throw new DBSchemaException("Clustering type do not match schema");
 
-        Object clusteringKeyValue = Validation.getComparable(strClusteringKeyValue, htblClusteringKeyMetaData.get("ColumnType"));
-        if (!Validation.isMidValue(clusteringKeyValue, htblClusteringKeyMetaData.get("Min"), htblClusteringKeyMetaData.get("Max")))
+        Object clusteringKeyValue = clusteringKey.getType().parse(strClusteringKeyValue);
+        if (!clusteringKey.isInRange(clusteringKeyValue))
             throw new DBSchemaException("Clustering value is not in the range");
 
-        Table table = SerializationManager.deserializeTable(strTableName);
+        for (String colName : htblColNameValue.keySet())
+            if (colName.equalsIgnoreCase(clusteringKey.getName()))
+                throw new DBQueryException("Cannot update cluster key value");
 
-        table.updateTuple(clusteringKeyValue, htblColNameValue);
+        long lsn;
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
 
-        SerializationManager.serializeTable(table);
+            try {
+                table.updateTuple(clusteringKeyValue, htblColNameValue);
+
+                lsn = commit(table, LogRecord.update(strTableName, strClusteringKeyValue, new Hashtable<>(htblColNameValue)));
+            } catch (DBNotFoundException e) { // checked before the table changes
+                throw e;
+            } catch (DBAppException | RuntimeException e) {
+                discardChanges(strTableName);
+                throw e;
+            }
+        }
+        waitDurable(lsn);
     }
 
     // following method could be used to delete one or more rows.
@@ -253,20 +413,43 @@ public class DBApp {
         if (!Validation.isTableExists(strTableName))
             throw new DBNotFoundException("Table do not exist");
 
-        Hashtable<String, Hashtable<String, String>> htblColNameMetaData = MetaDataManager.getMetaData(strTableName);
-        if (!htblColNameValue.keySet().equals(htblColNameMetaData.keySet()))
+        TableSchema schema = Catalog.getSchema(strTableName);
+        if (!htblColNameValue.keySet().equals(schema.getColNames()))
             throw new DBSchemaException("Column names do not match table schema");
-        if (!Validation.validateSchema(htblColNameValue, htblColNameMetaData))
+
+        deleteRows(strTableName, schema, htblColNameValue);
+    }
+
+    // Deletes the rows equal to htblColNameValue on the columns it holds, every row if it is empty.
+    // SQL DELETE and the log replay come here directly, their conditions do not have to name every column
+    private void deleteRows(String strTableName, TableSchema schema, Hashtable<String, Object> htblColNameValue) throws DBAppException {
+        if (!Validation.validateSchema(htblColNameValue, schema))
             throw new DBSchemaException("Columns metadata do not match table schema");
 
-        Table table = SerializationManager.deserializeTable(strTableName);
+        long lsn;
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
 
-        table.deleteTuples(htblColNameValue);
+            try {
+                table.deleteTuples(htblColNameValue);
 
-        SerializationManager.serializeTable(table);
+                lsn = commit(table, LogRecord.delete(strTableName, new Hashtable<>(htblColNameValue)));
+            } catch (DBAppException | RuntimeException e) {
+                discardChanges(strTableName);
+                throw e;
+            }
+        }
+        waitDurable(lsn);
+    }
+
+    // The returned TupleCursor reads the table's pages lazily while it is consumed,
+    // close it to stop early without reading the remaining pages
+    public TupleCursor selectFromTable(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+        return selectFromTable(arrSQLTerms, strarrOperators, new SelectOptions());
     }
 
-    public Iterator selectFromTable(SQLTerm[] arrSQLTerms, String[] strarrOperators) throws DBAppException {
+    // options selects the returned columns, their order and LIMIT / OFFSET, they are applied while the pages are scanned
+    public TupleCursor selectFromTable(SQLTerm[] arrSQLTerms, String[] strarrOperators, SelectOptions options) throws DBAppException {
         if (arrSQLTerms.length == 0)
             throw new DBSchemaException("No SQL terms passed");
         if (arrSQLTerms.length != strarrOperators.length + 1)
@@ -280,46 +463,223 @@ public class DBApp {
         if (!Validation.isTableExists(arrSQLTerms[0]._strTableName))
             throw new DBNotFoundException("Table do not exist");
 
-        Hashtable<String, Hashtable<String, String>> htblColNameMetaData = MetaDataManager.getMetaData(strTableName);
-        LinkedHashMap<String, Object> htblColNameValue = new LinkedHashMap<>();
-        String[] compareOperators = new String[arrSQLTerms.length];
-        Hashtable<String, Object> htblMin = new Hashtable<>();
-        Hashtable<String, Object> htblMax = new Hashtable<>();
+        TableSchema schema = Catalog.getSchema(strTableName);
+        Comparison[] comparisons = compileTerms(arrSQLTerms, schema);
+        options.check(schema);
+
+        return select(strTableName, comparisons, strarrOperators, options);
+    }
+
+    // Aggregates the tuples satisfying the conditions inside the table, without returning them. The cursor has one tuple
+    // per group of groupByColNames with the group columns and the aggregates named like COUNT(*) or AVG(gpa).
+    // Without terms every tuple of the table is aggregated
+    public TupleCursor aggregateTable(String strTableName, SQLTerm[] arrSQLTerms, String[] strarrOperators, String[] groupByColNames,
+                                      Aggregation[] aggregations) throws DBAppException {
+        if (aggregations.length == 0)
+            throw new DBQueryException("No aggregates passed");
+        if (arrSQLTerms.length != strarrOperators.length + 1 && (arrSQLTerms.length > 0 || strarrOperators.length > 0))
+            throw new DBSchemaException("SQL terms and operators do not match");
+        if (arrSQLTerms.length > 0 && (!Validation.areValidConditions(arrSQLTerms) || !arrSQLTerms[0]._strTableName.equalsIgnoreCase(strTableName)))
+            throw new DBSchemaException("Invalid Conditions");
+        if (!Validation.areValidLogicOperators(strarrOperators))
+            throw new DBSchemaException("Invalid logic operators");
+        if (!Validation.isTableExists(strTableName))
+            throw new DBNotFoundException("Table do not exist");
+
+        TableSchema schema = Catalog.getSchema(strTableName);
+        Comparison[] comparisons = compileTerms(arrSQLTerms, schema);
+        for (String colName : groupByColNames)
+            if (schema.getColumn(colName) == null)
+                throw new DBSchemaException("Column " + colName + " does not exist");
+        for (Aggregation aggregation : aggregations)
+            aggregation.check(schema);
+
+        return aggregate(strTableName, comparisons, strarrOperators, groupByColNames, aggregations);
+    }
+
+    // Runs one SQL statement, a SELECT returns its cursor and the other statements return null.
+    // The ? marks of the statement are bound to parameters in order
+    public TupleCursor executeSQL(String sql, Object... parameters) throws DBAppException {
+        return executeSQL(prepareSQL(sql), parameters);
+    }
+
+    // Parses, validates and plans a statement once, it can then be executed many times with different parameters.
+    // Statements on existing tables are cached by their normalized text, so preparing the same text again is a lookup
+    public SQLStatement prepareSQL(String sql) throws DBAppException {
+        String normalizedSQL = SQLLexer.normalize(sql);
+        SQLStatement statement = StatementCache.get(normalizedSQL);
+        if (statement != null)
+            return statement;
+
+        statement = SQLParser.parse(normalizedSQL);
+        if (statement.getType() == SQLStatement.Type.CREATE_TABLE)
+            return statement;
+        if (!Validation.isTableExists(statement.getTableName()))
+            throw new DBNotFoundException("Table do not exist");
+
+        statement.plan(Catalog.getSchema(statement.getTableName()));
+        StatementCache.put(normalizedSQL, statement);
+        return statement;
+    }
+
+    public TupleCursor executeSQL(SQLStatement statement, Object... parameters) throws DBAppException {
+        statement.checkParameters(parameters);
+        String strTableName = statement.getTableName();
+
+        switch (statement.getType()) {
+            case SELECT:
+                if (statement.isAggregate())
+                    return aggregate(strTableName, statement.bindComparisons(parameters), statement.getLogicalOperators(),
+                            statement.getGroupByColNames(), statement.getAggregations());
+                return select(strTableName, statement.bindComparisons(parameters), statement.getLogicalOperators(), statement.getSelectOptions());
+            case INSERT:
+                insertIntoTable(strTableName, statement.bindValues(parameters));
+                break;
+            case UPDATE:
+                updateTable(strTableName, statement.bindClusteringKeyValue(parameters), statement.bindValues(parameters));
+                break;
+            case DELETE:
+                deleteRows(strTableName, Catalog.getSchema(strTableName), statement.bindConditionValues(parameters));
+                break;
+            case CREATE_TABLE:
+                createTable(strTableName, statement.getClusteringKey(), statement.getHtblColNameType(), statement.getHtblColNameMin(),
+                        statement.getHtblColNameMax(), statement.getStorageLayout());
+                break;
+            case CREATE_INDEX:
+                if (statement.getIndexType() == null)
+                    createIndex(strTableName, statement.getColNames());
+                else
+                    createIndex(strTableName, statement.getColNames(), statement.getIndexType());
+                break;
+            case ANALYZE:
+                analyzeTable(strTableName);
+                break;
+        }
+        return null;
+    }
+
+    // Helper methods
+
+    // comparisons are validated against the schema of the table, a select without comparisons returns every tuple
+    private TupleCursor select(String strTableName, Comparison[] comparisons, String[] strarrOperators, SelectOptions options) throws DBAppException {
+        // compiled once, every candidate tuple is tested without parsing operators or looking up columns
+        Predicate predicate = PredicateCompiler.compile(comparisons, strarrOperators);
+
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
+
+            return table.selectTuples(predicate, options, DBApp.class);
+        }
+    }
+
+    private TupleCursor aggregate(String strTableName, Comparison[] comparisons, String[] strarrOperators, String[] groupByColNames,
+                                  Aggregation[] aggregations) throws DBAppException {
+        Predicate predicate = PredicateCompiler.compile(comparisons, strarrOperators);
+
+        synchronized (DBApp.class) {
+            Table table = SerializationManager.deserializeTable(strTableName);
+
+            return table.aggregate(predicate, groupByColNames, aggregations);
+        }
+    }
+
+    private static Comparison[] compileTerms(SQLTerm[] arrSQLTerms, TableSchema schema) throws DBAppException {
+        Comparison[] comparisons = new Comparison[arrSQLTerms.length];
         for (int i = 0; i < arrSQLTerms.length; i++) {
             SQLTerm term = arrSQLTerms[i];
-            String colName = term._strColumnName;
-            String type = htblColNameMetaData.get(colName).get("ColumnType");
-            Comparable minDataType = Validation.getComparable(htblColNameMetaData.get(colName).get("Min"), type);
-            Comparable maxDataType = Validation.getComparable(htblColNameMetaData.get(colName).get("Max"), type);
-
-            Object min = minDataType;
-            Object max = maxDataType;
-            if (term._strOperator == "=") {
-                min = term._objValue;
-                max = term._objValue;
-            }
-            if (term._strOperator == ">")
-                min = Validation.increment((Comparable) term._objValue);
-            if (term._strOperator == ">=")
-                min = term._objValue;
-            if (term._strOperator == "<")
-                max = Validation.decrement((Comparable) term._objValue);
-            if (term._strOperator == "<=")
-                max = term._objValue;
-
-
-            htblMin.put(colName, min);
-            htblMax.put(colName, max);
-            htblColNameValue.put(term._strColumnName, term._objValue);
-            compareOperators[i] = term._strOperator;
+            Column column = schema.getColumn(term._strColumnName);
+            if (column == null)
+                throw new DBSchemaException("Column names do not match table schema");
+            if (!column.getType().isInstance(term._objValue) || !column.isInRange(term._objValue))
+                throw new DBSchemaException("Columns metadata do not match table schema");
+
+            comparisons[i] = PredicateCompiler.compile(term, schema);
         }
+        return comparisons;
+    }
 
-        if (!Validation.validateSchema(htblColNameValue, htblColNameMetaData))
-            throw new DBSchemaException("Columns metadata do not match table schema");
+    // Ends a DML call, must hold the DBApp.class lock. Returns the lsn to pass to waitDurable, 0 if nothing was logged
+    private long commit(Table table, LogRecord record) throws DBAppException {
+        SerializationManager.serializeTable(table);
+        if (DBConfig.get().getFlushPolicy() == DBConfig.FlushPolicy.ON_COMMIT) {
+            BufferPool.flush(table.getTableName());
+            return 0;
+        }
+        return isRecovering ? 0 : WriteAheadLog.append(record);
+    }
+
+    // Called without the lock, so the log entries of concurrent calls are synced together
+    private void waitDurable(long lsn) throws DBAppException {
+        if (lsn == 0)
+            return;
+        WriteAheadLog.commit(lsn);
+
+        synchronized (DBApp.class) {
+            if (WriteAheadLog.getRecordsCount() >= DBConfig.get().getCheckpointInterval() || BufferPool.isOverCapacity())
+                SerializationManager.checkpoint();
+        }
+    }
+
+    // DDL and bulk inserts are not logged, their changes are checkpointed right away
+    private void checkpointUnlogged() throws DBAppException {
+        if (DBConfig.get().getFlushPolicy() == DBConfig.FlushPolicy.CHECKPOINT && !isRecovering)
+            SerializationManager.checkpoint();
+    }
+
+    // Called with the DBApp.class lock when a DML call fails after it started changing the table.
+    // The cached table, its index nodes and its pages are dropped, so only committed operations reach the files.
+    // With the CHECKPOINT flush policy the operations logged since the last checkpoint are only in the dropped state,
+    // they are replayed on the table read back from its files
+    private void discardChanges(String tableName) throws DBAppException {
+        if (isRecovering) // the failing operation is itself replayed, init() fails
+            return;
+        SerializationManager.discardTable(tableName);
+        if (DBConfig.get().getFlushPolicy() != DBConfig.FlushPolicy.CHECKPOINT)
+            return;
+
+        WriteAheadLog.commitAll();
+        Vector<LogRecord> records = new Vector<>();
+        for (LogRecord record : WriteAheadLog.readRecords())
+            if (record.getTableName().equals(tableName))
+                records.add(record);
+        replay(records);
+    }
+
+    private void replay(Vector<LogRecord> records) throws DBAppException {
+        isRecovering = true;
+        try {
+            for (LogRecord record : records)
+                switch (record.getType()) {
+                    case INSERT:
+                        insertIntoTable(record.getTableName(), record.getHtblColNameValue());
+                        break;
+                    case UPDATE:
+                        updateTable(record.getTableName(), record.getClusteringKeyValue(), record.getHtblColNameValue());
+                        break;
+                    case DELETE:
+                        deleteRows(record.getTableName(), Catalog.getSchema(record.getTableName()), record.getHtblColNameValue());
+                        break;
+                }
+        } finally {
+            isRecovering = false;
+        }
+    }
+
+    // Brings the files to the state of the last committed operation: finishes or drops an interrupted checkpoint,
+    // replays the WriteAheadLog, then checkpoints so the log can be emptied
+    private void recover() throws DBAppException {
+        MetaDataManager.openMetaDataFolder();
+        SerializationManager.recoverCheckpoint();
+
+        Vector<LogRecord> records = WriteAheadLog.readRecords();
+        if (records.isEmpty())
+            return;
 
-        Table table = SerializationManager.deserializeTable(strTableName);
+        replay(records);
 
-        return table.selectTuples(htblMin, htblMax, htblColNameValue, compareOperators, strarrOperators);
+        WriteAheadLog.open();
+        SerializationManager.checkpoint();
+        WriteAheadLog.close();
     }
 
 }
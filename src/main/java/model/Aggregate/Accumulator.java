@@ -0,0 +1,64 @@
+package model.Aggregate;
+
+// The running state of one aggregate of one group. Null values are skipped, like in SQL,
+// so COUNT(col) counts the non null values and the other aggregates of only null values are null
+class Accumulator {
+    private final Aggregation aggregation;
+    private int count;
+    private double doubleSum;
+    private long longSum;
+    private boolean isDouble;
+    private Comparable min;
+    private Comparable max;
+
+    Accumulator(Aggregation aggregation) {
+        this.aggregation = aggregation;
+    }
+
+    void add(Object value) {
+        if (aggregation.getColName() == null) { // COUNT(*)
+            count++;
+            return;
+        }
+        if (value == null)
+            return;
+
+        count++;
+        switch (aggregation.getFunction()) {
+            case SUM:
+            case AVG:
+                if (value instanceof Double) {
+                    isDouble = true;
+                    doubleSum += (Double) value;
+                } else
+                    longSum += (Integer) value;
+                break;
+            case MIN:
+                if (min == null || ((Comparable) value).compareTo(min) < 0)
+                    min = (Comparable) value;
+                break;
+            case MAX:
+                if (max == null || ((Comparable) value).compareTo(max) > 0)
+                    max = (Comparable) value;
+                break;
+        }
+    }
+
+    // COUNT is an Integer, SUM a Long for integer columns and a Double otherwise, AVG a Double
+    Object getResult() {
+        switch (aggregation.getFunction()) {
+            case COUNT:
+                return count;
+            case SUM:
+                if (count == 0)
+                    return null;
+                return isDouble ? (Object) (doubleSum + longSum) : (Object) longSum;
+            case AVG:
+                return count == 0 ? null : (doubleSum + longSum) / count;
+            case MIN:
+                return min;
+            default: // MAX
+                return max;
+        }
+    }
+}
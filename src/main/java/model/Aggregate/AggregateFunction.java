@@ -0,0 +1,19 @@
+package model.Aggregate;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+
+public enum AggregateFunction {
+    COUNT,
+    SUM,
+    MIN,
+    MAX,
+    AVG;
+
+    public static AggregateFunction of(String name) throws DBAppException {
+        for (AggregateFunction function : values())
+            if (function.name().equalsIgnoreCase(name))
+                return function;
+        throw new DBSchemaException("Invalid aggregate function: " + name);
+    }
+}
@@ -0,0 +1,49 @@
+package model.Aggregate;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+import model.Schema.Column;
+import model.Schema.ColumnType;
+import model.Schema.TableSchema;
+
+// function(colName), colName is null for COUNT(*)
+public class Aggregation {
+    private final AggregateFunction function;
+    private final String colName;
+
+    public Aggregation(AggregateFunction function, String colName) {
+        this.function = function;
+        this.colName = colName;
+    }
+
+    public void check(TableSchema schema) throws DBAppException {
+        if (colName == null) {
+            if (function != AggregateFunction.COUNT)
+                throw new DBSchemaException(function + " needs a column");
+            return;
+        }
+        Column column = schema.getColumn(colName);
+        if (column == null)
+            throw new DBSchemaException("Column " + colName + " does not exist");
+        boolean isNumeric = column.getType() == ColumnType.INTEGER || column.getType() == ColumnType.DOUBLE;
+        if ((function == AggregateFunction.SUM || function == AggregateFunction.AVG) && !isNumeric)
+            throw new DBSchemaException(function + " needs a numeric column");
+    }
+
+    public AggregateFunction getFunction() {
+        return function;
+    }
+
+    public String getColName() {
+        return colName;
+    }
+
+    // the column name of the aggregate in the result tuples, like COUNT(*) or AVG(gpa)
+    public String getName() {
+        return function + "(" + (colName == null ? "*" : colName) + ")";
+    }
+
+    public String toString() {
+        return getName();
+    }
+}
@@ -0,0 +1,68 @@
+package model.Aggregate;
+
+import model.Tuple;
+
+import java.util.*;
+
+// Streaming hash aggregation: tuples are added one at a time and only one Accumulator per aggregate and group is kept.
+// Groups are returned in the order they were first seen, without GROUP BY there is exactly one group, even for no tuples
+public class HashAggregate {
+    private final String[] groupByColNames;
+    private final Aggregation[] aggregations;
+    private final LinkedHashMap<List<Object>, Accumulator[]> groups;
+
+    public HashAggregate(String[] groupByColNames, Aggregation[] aggregations) {
+        this.groupByColNames = groupByColNames;
+        this.aggregations = aggregations;
+        this.groups = new LinkedHashMap<>();
+        if (groupByColNames.length == 0)
+            getAccumulators(Collections.emptyList());
+    }
+
+    public void add(Tuple tuple) {
+        List<Object> groupKey = new ArrayList<>(groupByColNames.length);
+        for (String colName : groupByColNames)
+            groupKey.add(tuple.getColValue(colName));
+
+        Accumulator[] accumulators = getAccumulators(groupKey);
+        for (int i = 0; i < aggregations.length; i++)
+            accumulators[i].add(aggregations[i].getColName() == null ? null : tuple.getColValue(aggregations[i].getColName()));
+    }
+
+    // the columns needed from every tuple
+    public String[] getColNames() {
+        LinkedHashSet<String> colNames = new LinkedHashSet<>(Arrays.asList(groupByColNames));
+        for (Aggregation aggregation : aggregations)
+            if (aggregation.getColName() != null)
+                colNames.add(aggregation.getColName());
+        return colNames.toArray(new String[0]);
+    }
+
+    // one tuple per group with its group by columns and its aggregates named by Aggregation.getName().
+    // Null group values and null aggregates are left out of the tuple
+    public Vector<Tuple> getResult(String clusterKeyName) {
+        Vector<Tuple> result = new Vector<>();
+        for (Map.Entry<List<Object>, Accumulator[]> group : groups.entrySet()) {
+            Hashtable<String, Object> htblColNameValue = new Hashtable<>();
+            for (int i = 0; i < groupByColNames.length; i++)
+                if (group.getKey().get(i) != null)
+                    htblColNameValue.put(groupByColNames[i], group.getKey().get(i));
+            for (int i = 0; i < aggregations.length; i++) {
+                Object value = group.getValue()[i].getResult();
+                if (value != null)
+                    htblColNameValue.put(aggregations[i].getName(), value);
+            }
+            result.add(new Tuple(clusterKeyName, htblColNameValue));
+        }
+        return result;
+    }
+
+    private Accumulator[] getAccumulators(List<Object> groupKey) {
+        return groups.computeIfAbsent(groupKey, k -> {
+            Accumulator[] accumulators = new Accumulator[aggregations.length];
+            for (int i = 0; i < aggregations.length; i++)
+                accumulators[i] = new Accumulator(aggregations[i]);
+            return accumulators;
+        });
+    }
+}
@@ -0,0 +1,148 @@
+package model;
+
+import exceptions.DBAppException;
+import utils.DBConfig;
+
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Vector;
+
+// B+-tree on one or more columns, ordered by the first column, then the next ones and then the clusterKey.
+// A lookup descends once to the first leaf of the range of the first column and follows the leaf chain,
+// the other columns only filter the entries. Nodes hold up to MaximumEntriesinBPlusTreeNode entries
+public class BPlusTreeIndex extends Index {
+
+    public BPlusTreeIndex(String tableName, String[] ColNames) {
+        super(tableName, ColNames);
+        attachNode(new BPlusTreeNode(true));
+    }
+
+    @Override
+    public IndexType getType() {
+        return IndexType.B_PLUS_TREE;
+    }
+
+    @Override
+    public void insertTuple(Tuple tuple, int pageIndex) throws DBAppException {
+        BPlusTreeNode root = getRoot();
+        BPlusTreeNode.Split split = root.insert(getEntry(tuple, pageIndex), DBConfig.get().getMaxEntriesInBPlusTreeNode());
+        if (split == null)
+            return;
+
+        // the root keeps its node id: its content moves to a new left child
+        BPlusTreeNode left = root.copy();
+        attachNode(left);
+        Vector<Integer> childrenIds = new Vector<>();
+        childrenIds.add(left.getNodeId());
+        childrenIds.add(split.right.getNodeId());
+        Vector<BPlusTreeEntry> separators = new Vector<>();
+        separators.add(split.separator);
+        root.setChildren(childrenIds, separators);
+    }
+
+    @Override
+    public void deleteTuple(Tuple tuple, int pageIndex) throws DBAppException {
+        getRoot().remove(getEntry(tuple, pageIndex));
+    }
+
+    @Override
+    public void updateTuplePageIndex(Tuple tuple, int oldPageIndex, int newPageIndex) throws DBAppException {
+        getRoot().update(getEntry(tuple, oldPageIndex), newPageIndex);
+    }
+
+    @Override
+    public PageRows getRows(Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
+        String[] colNames = getColNames();
+        Comparable[] minValues = new Comparable[colNames.length];
+        Comparable[] maxValues = new Comparable[colNames.length];
+        for (int i = 0; i < colNames.length; i++) {
+            minValues[i] = (Comparable) min.get(colNames[i]);
+            maxValues[i] = (Comparable) max.get(colNames[i]);
+        }
+
+        PageRows rows = new PageRows();
+        getRoot().get(minValues, maxValues, rows);
+        return rows;
+    }
+
+    @Override
+    public PageRows getRows(Hashtable<String, Object> htblColNameValue) throws DBAppException {
+        return getRows(htblColNameValue, htblColNameValue);
+    }
+
+    // the depth of the tree and the leaves holding the range of the first column
+    @Override
+    double estimateNodesRead(int tableSize, double rows, double leadingRows) {
+        double entriesPerNode = DBConfig.get().getMaxEntriesInBPlusTreeNode();
+        double depth = Math.max(1, Math.ceil(Math.log(tableSize) / Math.log(entriesPerNode)));
+        return depth + leadingRows / entriesPerNode;
+    }
+
+    @Override
+    BPlusTreeEntry getEntry(Tuple tuple, int pageIndex) {
+        String[] colNames = getColNames();
+        Comparable[] values = new Comparable[colNames.length];
+        for (int i = 0; i < colNames.length; i++)
+            values[i] = (Comparable) tuple.getColValue(colNames[i]);
+        return new BPlusTreeEntry(values, (Comparable) tuple.getClusterKeyValue(), pageIndex);
+    }
+
+    // Sorts the entries and builds the tree bottom up with full leaves, then full internal levels up to the root
+    @Override
+    void bulkLoad(Vector<Object> entries) throws DBAppException {
+        Vector<BPlusTreeEntry> sortedEntries = new Vector<>();
+        for (Object entry : entries)
+            sortedEntries.add((BPlusTreeEntry) entry);
+        sortedEntries.sort(null);
+        int maxEntries = DBConfig.get().getMaxEntriesInBPlusTreeNode();
+
+        clearNodes();
+        BPlusTreeNode root = new BPlusTreeNode(true);
+        attachNode(root);
+        if (sortedEntries.size() <= maxEntries) {
+            root.addEntries(sortedEntries);
+            return;
+        }
+
+        Vector<BPlusTreeNode> level = new Vector<>();
+        for (int i = 0; i < sortedEntries.size(); i += maxEntries) {
+            BPlusTreeNode leaf = new BPlusTreeNode(true);
+            attachNode(leaf);
+            leaf.addEntries(sortedEntries.subList(i, Math.min(sortedEntries.size(), i + maxEntries)));
+            if (!level.isEmpty())
+                level.lastElement().setNextLeafId(leaf.getNodeId());
+            level.add(leaf);
+        }
+
+        // each parent takes up to maxEntries + 1 children, the first entry of every other child is its separator
+        Vector<BPlusTreeEntry> firstEntries = new Vector<>();
+        for (BPlusTreeNode leaf : level)
+            firstEntries.add(leaf.getFirstEntry());
+        while (level.size() > maxEntries + 1) {
+            Vector<BPlusTreeNode> parents = new Vector<>();
+            Vector<BPlusTreeEntry> parentsFirstEntries = new Vector<>();
+            for (int i = 0; i < level.size(); i += maxEntries + 1) {
+                int end = Math.min(level.size(), i + maxEntries + 1);
+                BPlusTreeNode parent = new BPlusTreeNode(false);
+                attachNode(parent);
+                parent.setChildren(getNodeIds(level.subList(i, end)), firstEntries.subList(i + 1, end));
+                parents.add(parent);
+                parentsFirstEntries.add(firstEntries.get(i));
+            }
+            level = parents;
+            firstEntries = parentsFirstEntries;
+        }
+        root.setChildren(getNodeIds(level), firstEntries.subList(1, firstEntries.size()));
+    }
+
+    private static Vector<Integer> getNodeIds(List<BPlusTreeNode> nodes) {
+        Vector<Integer> nodeIds = new Vector<>();
+        for (BPlusTreeNode node : nodes)
+            nodeIds.add(node.getNodeId());
+        return nodeIds;
+    }
+
+    private BPlusTreeNode getRoot() throws DBAppException {
+        return (BPlusTreeNode) loadNode(ROOT_NODE_ID);
+    }
+}
@@ -0,0 +1,235 @@
+package model;
+
+import exceptions.DBAppException;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Vector;
+
+// Leaves hold entries in order and the id of the next leaf. Internal nodes hold the ids of their children
+// and a separator before every child but the first: child i holds the entries e with separator(i - 1) <= e < separator(i).
+// Deletes do not rebalance, a leaf can become empty and is still chained
+public class BPlusTreeNode extends IndexNode {
+    private boolean isLeaf;
+    private final Vector<BPlusTreeEntry> entries; // the entries of a leaf or the separators of an internal node
+    private final Vector<Integer> childrenIds;
+    private int nextLeafId = -1;
+
+    // the separator and the new right node of a split, the parent adds both
+    static class Split {
+        final BPlusTreeEntry separator;
+        final BPlusTreeNode right;
+
+        Split(BPlusTreeEntry separator, BPlusTreeNode right) {
+            this.separator = separator;
+            this.right = right;
+        }
+    }
+
+    BPlusTreeNode(boolean isLeaf) {
+        this.isLeaf = isLeaf;
+        this.entries = new Vector<>();
+        this.childrenIds = new Vector<>();
+    }
+
+    // Returns the split of this node when it has more than maxEntries entries after the insert, null otherwise
+    Split insert(BPlusTreeEntry entry, int maxEntries) throws DBAppException {
+        if (isLeaf) {
+            int position = upperBound(entry);
+            if (position > 0 && entries.get(position - 1).compareTo(entry) == 0)
+                entries.set(position - 1, entry); // the same tuple, only its page changed
+            else
+                entries.add(position, entry);
+        } else {
+            int position = upperBound(entry);
+            Split split = getChild(position).insert(entry, maxEntries);
+            if (split != null) {
+                entries.add(position, split.separator);
+                childrenIds.add(position + 1, split.right.getNodeId());
+            }
+        }
+        setDirty(true);
+        return entries.size() > maxEntries ? split() : null;
+    }
+
+    boolean remove(BPlusTreeEntry entry) throws DBAppException {
+        if (!isLeaf)
+            return getChild(upperBound(entry)).remove(entry);
+
+        int position = upperBound(entry) - 1;
+        if (position < 0 || entries.get(position).compareTo(entry) != 0)
+            return false;
+        entries.remove(position);
+        setDirty(true);
+        return true;
+    }
+
+    // sets the page of the entry of the same tuple
+    boolean update(BPlusTreeEntry entry, int newPageIndex) throws DBAppException {
+        if (!isLeaf)
+            return getChild(upperBound(entry)).update(entry, newPageIndex);
+
+        int position = upperBound(entry) - 1;
+        if (position < 0 || entries.get(position).compareTo(entry) != 0)
+            return false;
+        entries.get(position).setPageIndex(newPageIndex);
+        setDirty(true);
+        return true;
+    }
+
+    // Adds the rows of the entries whose values are all in [min, max], starting at the first leaf that can hold
+    // the first value min[0] and following the leaves until the first value passes max[0]. null bounds are open
+    void get(Comparable[] min, Comparable[] max, PageRows rows) throws DBAppException {
+        BPlusTreeNode node = this;
+        while (!node.isLeaf) {
+            int position = 0;
+            while (position < node.entries.size() && min[0] != null
+                    && BPlusTreeEntry.compareValues(node.entries.get(position).getValue(0), min[0]) < 0)
+                position++;
+            node = node.getChild(position);
+        }
+
+        while (true) {
+            for (BPlusTreeEntry entry : node.entries) {
+                if (max[0] != null && BPlusTreeEntry.compareValues(entry.getValue(0), max[0]) > 0)
+                    return;
+                if (entry.isBetween(min, max))
+                    rows.addRow(entry.getPageIndex(), entry.getClusterKeyValue());
+            }
+            if (node.nextLeafId < 0)
+                return;
+            node = (BPlusTreeNode) getIndex().loadNode(node.nextLeafId);
+        }
+    }
+
+    // Bulk load: this becomes the parent of children, separators.get(i) being the first entry under child i + 1
+    void setChildren(List<Integer> childrenIds, List<BPlusTreeEntry> separators) {
+        this.isLeaf = false;
+        this.nextLeafId = -1;
+        this.childrenIds.clear();
+        this.childrenIds.addAll(childrenIds);
+        this.entries.clear();
+        this.entries.addAll(separators);
+        setDirty(true);
+    }
+
+    void addEntries(List<BPlusTreeEntry> entries) {
+        this.entries.addAll(entries);
+        setDirty(true);
+    }
+
+    // a new node with the content of this one, used to grow the tree from the root that keeps its node id
+    BPlusTreeNode copy() {
+        BPlusTreeNode node = new BPlusTreeNode(isLeaf);
+        node.entries.addAll(entries);
+        node.childrenIds.addAll(childrenIds);
+        node.nextLeafId = nextLeafId;
+        return node;
+    }
+
+    BPlusTreeEntry getFirstEntry() {
+        return entries.get(0);
+    }
+
+    void setNextLeafId(int nextLeafId) {
+        this.nextLeafId = nextLeafId;
+        setDirty(true);
+    }
+
+    // Helpers
+    // the number of entries that are not after entry, which is also the child that holds it
+    private int upperBound(BPlusTreeEntry entry) {
+        int low = 0, high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).compareTo(entry) <= 0)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private Split split() {
+        BPlusTreeNode right = new BPlusTreeNode(isLeaf);
+        getIndex().attachNode(right);
+        int mid = entries.size() / 2;
+
+        BPlusTreeEntry separator;
+        if (isLeaf) {
+            right.entries.addAll(entries.subList(mid, entries.size()));
+            entries.subList(mid, entries.size()).clear();
+            separator = right.entries.get(0);
+            right.nextLeafId = nextLeafId;
+            nextLeafId = right.getNodeId();
+        } else { // the middle separator moves up
+            separator = entries.get(mid);
+            right.entries.addAll(entries.subList(mid + 1, entries.size()));
+            right.childrenIds.addAll(childrenIds.subList(mid + 1, childrenIds.size()));
+            entries.subList(mid, entries.size()).clear();
+            childrenIds.subList(mid + 1, childrenIds.size()).clear();
+        }
+        return new Split(separator, right);
+    }
+
+    private BPlusTreeNode getChild(int position) throws DBAppException {
+        return (BPlusTreeNode) getIndex().loadNode(childrenIds.get(position));
+    }
+}
+
+// The indexed values of a tuple, its clusterKey and its page. Entries are ordered by their values and then by
+// the clusterKey, so every tuple has exactly one entry and the page is not part of the order
+class BPlusTreeEntry implements Serializable, Comparable<BPlusTreeEntry> {
+    private final Comparable[] values;
+    private final Comparable clusterKeyValue;
+    private int pageIndex;
+
+    BPlusTreeEntry(Comparable[] values, Comparable clusterKeyValue, int pageIndex) {
+        this.values = values;
+        this.clusterKeyValue = clusterKeyValue;
+        this.pageIndex = pageIndex;
+    }
+
+    @Override
+    public int compareTo(BPlusTreeEntry entry) {
+        for (int i = 0; i < values.length; i++) {
+            int compare = compareValues(values[i], entry.values[i]);
+            if (compare != 0)
+                return compare;
+        }
+        return compareValues(clusterKeyValue, entry.clusterKeyValue);
+    }
+
+    // nulls come first
+    static int compareValues(Comparable value1, Comparable value2) {
+        if (value1 == null || value2 == null)
+            return value1 == null ? (value2 == null ? 0 : -1) : 1;
+        return value1.compareTo(value2);
+    }
+
+    boolean isBetween(Comparable[] min, Comparable[] max) {
+        for (int i = 0; i < values.length; i++) {
+            if (min[i] != null && (values[i] == null || values[i].compareTo(min[i]) < 0))
+                return false;
+            if (max[i] != null && (values[i] == null || values[i].compareTo(max[i]) > 0))
+                return false;
+        }
+        return true;
+    }
+
+    Comparable getValue(int i) {
+        return values[i];
+    }
+
+    Comparable getClusterKeyValue() {
+        return clusterKeyValue;
+    }
+
+    int getPageIndex() {
+        return pageIndex;
+    }
+
+    void setPageIndex(int pageIndex) {
+        this.pageIndex = pageIndex;
+    }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import exceptions.DBAppException;
+
+// The pages and rows Table.plan() found for a part of a predicate and the estimated cost of reading them.
+// The rows are computed only for the parts kept in the final plan, so the indices of rejected alternatives are not read
+class CandidatePages {
+    interface RowsSupplier {
+        PageRows get() throws DBAppException;
+    }
+
+    private final QueryPlan.AccessPath accessPath;
+    private final String description;
+    private final double cost; // in pages read
+    private final RowsSupplier supplier;
+
+    CandidatePages(QueryPlan.AccessPath accessPath, String description, double cost, RowsSupplier supplier) {
+        this.accessPath = accessPath;
+        this.description = description;
+        this.cost = cost;
+        this.supplier = supplier;
+    }
+
+    // the rows satisfying either side, for OR and XOR
+    static CandidatePages union(CandidatePages left, CandidatePages right) {
+        return new CandidatePages(QueryPlan.AccessPath.INDEX_UNION, "(" + left + " OR " + right + ")", left.cost + right.cost, () -> {
+            PageRows rows = left.getRows();
+            rows.addAll(right.getRows());
+            return rows;
+        });
+    }
+
+    // the rows satisfying both sides, for AND
+    static CandidatePages intersect(CandidatePages left, CandidatePages right) {
+        return new CandidatePages(QueryPlan.AccessPath.INDEX_INTERSECTION, "(" + left + " AND " + right + ")", Math.min(left.cost, right.cost), () -> {
+            PageRows rows = left.getRows();
+            rows.retainAll(right.getRows());
+            return rows;
+        });
+    }
+
+    QueryPlan.AccessPath getAccessPath() {
+        return accessPath;
+    }
+
+    double getCost() {
+        return cost;
+    }
+
+    // a new PageRows on every call, the caller may change it
+    PageRows getRows() throws DBAppException {
+        return supplier.get();
+    }
+
+    public String toString() {
+        return description;
+    }
+}
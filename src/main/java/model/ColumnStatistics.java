@@ -0,0 +1,160 @@
+package model;
+
+import model.Predicate.KeyRange;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+import java.util.TreeSet;
+
+// Distribution of the values of one column, collected by Table.analyze().
+// bounds is an equi-depth histogram: every bucket [bounds[i], bounds[i + 1]] holds about the same number of values
+public class ColumnStatistics implements Serializable {
+    private static final int BUCKETS_COUNT = 16;
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int SKETCH_SIZE = 256;
+
+    private final Comparable[] bounds;
+    private final long valuesCount;
+    private final long nullsCount;
+    private final long distinctCount;
+
+    private ColumnStatistics(Comparable[] bounds, long valuesCount, long nullsCount, long distinctCount) {
+        this.bounds = bounds;
+        this.valuesCount = valuesCount;
+        this.nullsCount = nullsCount;
+        this.distinctCount = distinctCount;
+    }
+
+    // the estimated fraction of the rows whose value is in range
+    public double getSelectivity(KeyRange range) {
+        if (range.isAll())
+            return 1;
+        if (range.isEmpty() || bounds.length == 0)
+            return 0;
+
+        double nonNullFraction = (double) valuesCount / (valuesCount + nullsCount);
+        boolean isPoint = range.getMin() != null && range.getMin().equals(range.getMax()); // col = value
+        double buckets = 0;
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            Comparable low = bounds[i];
+            Comparable high = bounds[i + 1];
+            if (range.isAbove(low) || range.isBelow(high)) // no overlap
+                continue;
+            if (!range.isBelow(low) && !range.isAbove(high)) // bucket inside the range
+                buckets++;
+            else if (!isPoint)
+                buckets += getOverlap(range, low, high);
+        }
+        double selectivity = buckets / (bounds.length - 1);
+
+        // a value filling whole buckets is frequent, any other value is assumed to be as frequent as the average one
+        if (isPoint && !range.isAbove(bounds[0]) && !range.isBelow(bounds[bounds.length - 1]))
+            selectivity = Math.max(selectivity, 1.0 / Math.max(1, distinctCount));
+        return nonNullFraction * selectivity;
+    }
+
+    public long getDistinctCount() {
+        return distinctCount;
+    }
+
+    public long getNullsCount() {
+        return nullsCount;
+    }
+
+    public Comparable getMin() {
+        return bounds.length == 0 ? null : bounds[0];
+    }
+
+    public Comparable getMax() {
+        return bounds.length == 0 ? null : bounds[bounds.length - 1];
+    }
+
+    // Helper methods
+
+    // the fraction of [low, high] inside range assuming uniform values, half a bucket for strings
+    private static double getOverlap(KeyRange range, Comparable low, Comparable high) {
+        if (!isNumeric(low))
+            return 0.5;
+        double lowValue = toDouble(low);
+        double highValue = toDouble(high);
+        if (highValue <= lowValue)
+            return 1;
+
+        double from = range.getMin() == null ? lowValue : Math.max(lowValue, toDouble(range.getMin()));
+        double to = range.getMax() == null ? highValue : Math.min(highValue, toDouble(range.getMax()));
+        return Math.max(0, to - from) / (highValue - lowValue);
+    }
+
+    private static boolean isNumeric(Object value) {
+        return value instanceof Number || value instanceof Date;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Date ? ((Date) value).getTime() : ((Number) value).doubleValue();
+    }
+
+    // Reads the values of a column once. Keeps a fixed size random sample for the histogram
+    // and the smallest hashes of the values to estimate the distinct count (k minimum values sketch)
+    static class Collector {
+        private final Comparable[] sample;
+        private final TreeSet<Long> smallestHashes;
+        private final Random random;
+        private long valuesCount;
+        private long nullsCount;
+
+        Collector() {
+            this.sample = new Comparable[SAMPLE_SIZE];
+            this.smallestHashes = new TreeSet<>();
+            this.random = new Random(0);
+        }
+
+        void add(Object value) {
+            if (value == null) {
+                nullsCount++;
+                return;
+            }
+
+            if (valuesCount < SAMPLE_SIZE)
+                sample[(int) valuesCount] = (Comparable) value;
+            else {
+                long slot = (long) (random.nextDouble() * (valuesCount + 1));
+                if (slot < SAMPLE_SIZE)
+                    sample[(int) slot] = (Comparable) value;
+            }
+            valuesCount++;
+
+            long hash = hash(value.hashCode());
+            if (smallestHashes.size() < SKETCH_SIZE)
+                smallestHashes.add(hash);
+            else if (hash < smallestHashes.last() && smallestHashes.add(hash))
+                smallestHashes.pollLast();
+        }
+
+        ColumnStatistics build() {
+            Comparable[] values = Arrays.copyOf(sample, (int) Math.min(valuesCount, SAMPLE_SIZE));
+            Arrays.sort(values);
+
+            Comparable[] bounds = new Comparable[values.length == 0 ? 0 : BUCKETS_COUNT + 1];
+            for (int i = 0; i < bounds.length; i++)
+                bounds[i] = values[(int) ((long) i * (values.length - 1) / BUCKETS_COUNT)];
+
+            long distinctCount = smallestHashes.size();
+            if (smallestHashes.size() == SKETCH_SIZE) // the k-th smallest of n uniform hashes is about k / n of the hash space
+                distinctCount = Math.min(valuesCount, (long) ((SKETCH_SIZE - 1) * (double) (1L << 32) / (smallestHashes.last() + 1)));
+            return new ColumnStatistics(bounds, valuesCount, nullsCount, distinctCount);
+        }
+
+        // spreads hashCode() uniformly over [0, 2^32)
+        private static long hash(int hashCode) {
+            int h = hashCode;
+            h ^= h >>> 16;
+            h *= 0x85ebca6b;
+            h ^= h >>> 13;
+            h *= 0xc2b2ae35;
+            h ^= h >>> 16;
+            return h & 0xffffffffL;
+        }
+    }
+}
@@ -1,77 +1,124 @@
 package model;
 
 import exceptions.DBAppException;
+import utils.SerializationManager;
+import utils.Utils;
 
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.Vector;
 
-public class Index implements Serializable {
+// Only the index header is serialized with the Index, its nodes are stored one per file
+// under Indexes/<indexName>/ and are loaded when a lookup or an update reaches them.
+public abstract class Index implements Serializable {
+    static final int ROOT_NODE_ID = 0;
+
+    private String tableName;
     private String indexName;
     private String[] colNames;
-    private Octree root;
+    private int nodesCount;
+    private transient Hashtable<Integer, IndexNode> loadedNodes;
+    private transient Vector<Integer> detachedNodeIds; // their files are deleted by the next serializeIndex
 
-    public Index(String[] ColNames, Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
+    Index(String tableName, String[] ColNames) {
+        this.tableName = tableName;
         this.indexName = String.join("_", ColNames);
         this.colNames = ColNames;
+        this.nodesCount = 0;
 
-        this.setRoot(min, max);
+        Utils.createFolder(Utils.getIndexNodesFolderPath(tableName, indexName));
     }
 
-    public void insertTuple(Tuple tuple, int pageIndex) throws DBAppException {
-        Comparable x = (Comparable) tuple.getColValue(colNames[0]);
-        Comparable y = (Comparable) tuple.getColValue(colNames[1]);
-        Comparable z = (Comparable) tuple.getColValue(colNames[2]);
+    public abstract IndexType getType();
 
-        root.insert(x, y, z, pageIndex);
-    }
+    public abstract void insertTuple(Tuple tuple, int pageIndex) throws DBAppException;
 
-    public void deleteTuple(Tuple tuple, int pageIndex) throws DBAppException {
-        Comparable x = (Comparable) tuple.getColValue(colNames[0]);
-        Comparable y = (Comparable) tuple.getColValue(colNames[1]);
-        Comparable z = (Comparable) tuple.getColValue(colNames[2]);
+    public abstract void deleteTuple(Tuple tuple, int pageIndex) throws DBAppException;
 
-        root.remove(x, y, z, pageIndex);
-    }
+    public abstract void updateTuplePageIndex(Tuple tuple, int oldPageIndex, int newPageIndex) throws DBAppException;
+
+    // the pages and clusterKeys of the tuples whose indexed values are all between min and max, both included
+    public abstract PageRows getRows(Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException;
+
+    public abstract PageRows getRows(Hashtable<String, Object> htblColNameValue) throws DBAppException;
+
+    // Nodes read by a lookup: rows is the estimated number of matching tuples of the table
+    // and leadingRows the estimated number of tuples matching the range of the first indexed column
+    abstract double estimateNodesRead(int tableSize, double rows, double leadingRows);
+
+    // the entry of the tuple in this index, only used to be passed back to bulkLoad
+    abstract Object getEntry(Tuple tuple, int pageIndex);
 
-    public void updateTuplePageIndex(Tuple tuple, int oldPageIndex, int newPageIndex) {
-        Comparable x = (Comparable) tuple.getColValue(colNames[0]);
-        Comparable y = (Comparable) tuple.getColValue(colNames[1]);
-        Comparable z = (Comparable) tuple.getColValue(colNames[2]);
+    // Replaces the whole index by one built from the entries of every tuple at once, node ids restart from the root
+    abstract void bulkLoad(Vector<Object> entries) throws DBAppException;
 
-        root.update(x, y, z, oldPageIndex, newPageIndex);
+    // drops every node, the next attached node is the root.
+    // The old ids are detached, the files of those the rebuilt index does not reuse are deleted
+    void clearNodes() {
+        for (int nodeId = 0; nodeId < nodesCount; nodeId++)
+            getDetachedNodeIds().add(nodeId);
+        this.nodesCount = 0;
+        getLoadedNodes().clear();
     }
 
-    public HashSet<Integer> getPagesIndex(Hashtable<String, Object> min, Hashtable<String, Object> max) {
-        Comparable x1 = (Comparable) min.get(colNames[0]);
-        Comparable y1 = (Comparable) min.get(colNames[1]);
-        Comparable z1 = (Comparable) min.get(colNames[2]);
-        Comparable x2 = (Comparable) max.get(colNames[0]);
-        Comparable y2 = (Comparable) max.get(colNames[1]);
-        Comparable z2 = (Comparable) max.get(colNames[2]);
+    // Gives a new node its id, it is written with the next serializeIndex
+    void attachNode(IndexNode node) {
+        node.setNodeId(nodesCount++);
+        node.setIndex(this);
+        node.setDirty(true);
+        getLoadedNodes().put(node.getNodeId(), node);
+    }
 
-        return root.get(x1, y1, z1, x2, y2, z2);
+    // The node is no longer reachable from the root, it is not written again and its id is not reused
+    void detachNode(IndexNode node) {
+        getLoadedNodes().remove(node.getNodeId());
+        getDetachedNodeIds().add(node.getNodeId());
     }
 
-    public HashSet<Integer> getPagesIndex(Hashtable<String, Object> htblColNameValue) {
-        Comparable x = (Comparable) htblColNameValue.get(colNames[0]);
-        Comparable y = (Comparable) htblColNameValue.get(colNames[1]);
-        Comparable z = (Comparable) htblColNameValue.get(colNames[2]);
+    IndexNode loadNode(int nodeId) throws DBAppException {
+        IndexNode node = getLoadedNodes().get(nodeId);
+        if (node == null) {
+            node = SerializationManager.deserializeIndexNode(tableName, indexName, nodeId);
+            node.setIndex(this);
+            getLoadedNodes().put(nodeId, node);
+        }
+        return node;
+    }
 
-        return root.get(x, y, z);
+    // returns the nodes changed since the last call
+    public Vector<IndexNode> collectDirtyNodes() {
+        Vector<IndexNode> dirtyNodes = new Vector<>();
+        for (IndexNode node : getLoadedNodes().values())
+            if (node.isDirty()) {
+                dirtyNodes.add(node);
+                node.setDirty(false);
+            }
+        return dirtyNodes;
     }
 
-    private void setRoot(Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
-        Comparable col1Min = (Comparable) min.get(colNames[0]);
-        Comparable col1Max = (Comparable) max.get(colNames[0]);
-        Comparable col2Min = (Comparable) min.get(colNames[1]);
-        Comparable col2Max = (Comparable) max.get(colNames[1]);
-        Comparable col3Min = (Comparable) min.get(colNames[2]);
-        Comparable col3Max = (Comparable) max.get(colNames[2]);
+    // returns the ids of the nodes detached since the last call, except those a bulkLoad attached again
+    public Vector<Integer> collectDetachedNodeIds() {
+        Vector<Integer> nodeIds = new Vector<>();
+        for (int nodeId : new HashSet<>(getDetachedNodeIds()))
+            if (!getLoadedNodes().containsKey(nodeId))
+                nodeIds.add(nodeId);
+        detachedNodeIds = null;
+        return nodeIds;
+    }
 
-        root = new Octree(col1Min, col2Min, col3Min, col1Max, col2Max, col3Max);
+    private Vector<Integer> getDetachedNodeIds() {
+        if (detachedNodeIds == null)
+            detachedNodeIds = new Vector<>();
+        return detachedNodeIds;
+    }
+
+    private Hashtable<Integer, IndexNode> getLoadedNodes() {
+        if (loadedNodes == null)
+            loadedNodes = new Hashtable<>();
+        return loadedNodes;
     }
 
     public boolean isIndexOn(String[] colNames) {
@@ -81,6 +128,10 @@ public class Index implements Serializable {
         return false;
     }
 
+    public String getTableName() {
+        return tableName;
+    }
+
     public String getIndexName() {
         return indexName;
     }
@@ -0,0 +1,34 @@
+package model;
+
+import java.io.Serializable;
+
+// A node that its Index stores in its own file under Indexes/<indexName>/ and loads when a lookup or an update reaches it
+public abstract class IndexNode implements Serializable {
+    private int nodeId = -1;
+    private transient Index index; // set when the node is loaded or attached
+    private transient boolean isDirty;
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    void setNodeId(int nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    Index getIndex() {
+        return index;
+    }
+
+    void setIndex(Index index) {
+        this.index = index;
+    }
+
+    boolean isDirty() {
+        return isDirty;
+    }
+
+    void setDirty(boolean isDirty) {
+        this.isDirty = isDirty;
+    }
+}
@@ -0,0 +1,27 @@
+package model;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+
+// The IndexType written in the metadata file
+public enum IndexType {
+    OCTREE("Octree"), // exactly three columns, answers boxes on all of them
+    B_PLUS_TREE("BPlusTree"); // one or more columns, ordered by the first one and then the next ones
+
+    private final String name;
+
+    IndexType(String name) {
+        this.name = name;
+    }
+
+    public static IndexType of(String name) throws DBAppException {
+        for (IndexType type : values())
+            if (type.name.equalsIgnoreCase(name) || type.name().equalsIgnoreCase(name))
+                return type;
+        throw new DBSchemaException("Invalid index type: " + name);
+    }
+
+    public String toString() {
+        return name;
+    }
+}
@@ -2,268 +2,403 @@ package model;
 
 import exceptions.DBAppException;
 import exceptions.DBSchemaException;
-import utils.Validation;
+import utils.DBConfig;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.HashSet;
+import java.util.Date;
+import java.util.List;
 import java.util.Vector;
 
-public class Octree implements Serializable {
-
-    private final Octree[] children = new Octree[8];
-    private final Vector<Octant> points; // A list to store duplicate points
-    private Octant minXYZ, maxXYZ;
+// Internal nodes are stored as separate blocks by their Index and loaded on demand,
+// leaves are stored inline inside their parent node and empty leaves are null.
+// A leaf holds up to MaximumEntriesinOctreeNode points and is split into a range node when one more distinct point
+// arrives, duplicates of a single point never split. Removing points collapses a range node whose children are all
+// leaves holding that many points or fewer back into a leaf.
+// Coordinates are traversed as order preserving longs (see encode), each range node keeps the bounds and
+// midpoints of its box in flat arrays, so finding the octant of a point allocates nothing and compares primitives.
+// Child i covers the upper half of the box on dimension d when bit d of i is set: [mid + 1, max], else [min, mid]
+public class Octree extends IndexNode {
+
+    private transient Octree[] children = new Octree[8];
+    private final int[] childrenIds = new int[8]; // nodeId of each internal child, -1 for leaves
+    private final Vector<Octant> points; // the points of a leaf, null for range nodes
+    private final long[] min, max, mid; // null for leaves
 
     public Octree(Comparable x1, Comparable y1, Comparable z1, Comparable x2, Comparable y2, Comparable z2) throws DBAppException {
-        if (x2.compareTo(x1) < 0 || y2.compareTo(y1) < 0 || z2.compareTo(z1) < 0) {
-            throw new DBSchemaException("node bounds are not properly set!");
-        }
+        this(new long[]{encode(x1), encode(y1), encode(z1)}, new long[]{encode(x2), encode(y2), encode(z2)});
+    }
+
+    private Octree(long[] min, long[] max) throws DBAppException {
+        for (int d = 0; d < 3; d++)
+            if (max[d] < min[d])
+                throw new DBSchemaException("node bounds are not properly set!");
 
         this.points = null;
-        this.minXYZ = new Octant(x1, y1, z1);
-        this.maxXYZ = new Octant(x2, y2, z2);
+        this.min = min;
+        this.max = max;
+        this.mid = new long[3];
+        for (int d = 0; d < 3; d++)
+            this.mid[d] = (min[d] >> 1) + (max[d] >> 1) + (min[d] & max[d] & 1); // floor of the average without overflow
 
-        for (int i = 0; i <= 7; i++) {
-            this.children[i] = new Octree();
-        }
+        Arrays.fill(this.childrenIds, -1);
     }
 
-    private Octree(Comparable x, Comparable y, Comparable z, int pageIndex) {
-        this.points = new Vector<>();
-        this.points.add(new Octant(x, y, z, pageIndex));
+    private Octree(Octant point) {
+        this();
+        this.points.add(point);
     }
 
     private Octree() {
         this.points = new Vector<>();
+        this.min = null;
+        this.max = null;
+        this.mid = null;
     }
 
-    public void insert(Comparable x, Comparable y, Comparable z, int pageIndex) throws DBAppException {
-        if (!isValid(x, y, z)) {
-            System.out.println(x + " " + y + " " + z + " " + maxXYZ.toString() + " " + minXYZ.toString());
-            throw new DBSchemaException("Invalid coordinates");
+    // Order preserving encoding of a coordinate: a < b when encode(a) < encode(b), and encode(a) <= encode(b) when a <= b.
+    // Integers, doubles and dates are encoded exactly, strings by their first 4 characters, so distinct strings
+    // sharing that prefix land in the same leaf and are told apart by their values
+    static long encode(Comparable value) {
+        if (value instanceof Integer)
+            return (Integer) value;
+        if (value instanceof Double) {
+            long bits = Double.doubleToLongBits((Double) value);
+            return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
         }
+        if (value instanceof Date)
+            return ((Date) value).getTime();
+
+        String string = (String) value;
+        long key = 0;
+        for (int i = 0; i < 4; i++)
+            key = key << 16 | (i < string.length() ? string.charAt(i) : 0);
+        return key ^ Long.MIN_VALUE;
+    }
+
+    public void insert(Octant point) throws DBAppException {
+        if (!isValid(point.getKey(0), point.getKey(1), point.getKey(2)))
+            throw new DBSchemaException("Invalid coordinates");
 
-        Comparable[] mids = getMidPoints();
-        Comparable midX = mids[0], midY = mids[1], midZ = mids[2];
-
-        int pos = getPosition(x, y, z);
-
-        if (children[pos].points == null) {         // if null, then it's an Octree with children (range node)
-            children[pos].insert(x, y, z, pageIndex);
-        } else if (children[pos].points.isEmpty()) { // if empty, then it's an empty Octant (leaf node)
-            children[pos] = new Octree(x, y, z, pageIndex);
-        } else {                                     // else it is a non-empty Octant (leaf node)
-            // handle multiple duplicates
-            Octant octant = children[pos].points.get(0);
-            Comparable x_ = octant.getX();
-            Comparable y_ = octant.getY();
-            Comparable z_ = octant.getZ();
-            int pageIndex_ = octant.getPageIndex();
-            if (x.equals(x_) && y.equals(y_) && z.equals(z_)) { // if is a duplicate
-                children[pos].points.add(new Octant(x, y, z, pageIndex));
+        int pos = getPosition(point.getKey(0), point.getKey(1), point.getKey(2));
+        Octree child = getChild(pos);
+
+        if (child == null) {                 // an empty leaf
+            children[pos] = new Octree(point);
+            setDirty(true);
+        } else if (child.points == null) {   // a range node
+            child.insert(point);
+        } else {                             // a leaf, split once it is full unless all its points are duplicates
+            if (child.points.size() < DBConfig.get().getMaxEntriesInOctreeNode()
+                    || (isSamePoint(child.points) && child.points.get(0).hasSameKey(point))) {
+                child.points.add(point);
+                setDirty(true);
                 return;
             }
-            children[pos] = null;
 
-            Comparable incrementedMidX = Validation.increment(midX);
-            Comparable incrementedMidY = Validation.increment(midY);
-            Comparable incrementedMidZ = Validation.increment(midZ);
-            if (pos == OctLocations.TopLeftFront.getNumber()) {
-                children[pos] = new Octree(minXYZ.getX(), minXYZ.getY(), minXYZ.getZ(), midX, midY, midZ);
-            } else if (pos == OctLocations.TopRightFront.getNumber()) {
-                children[pos] = new Octree(incrementedMidX, minXYZ.getY(), minXYZ.getZ(), maxXYZ.getX(), midY, midZ);
-            } else if (pos == OctLocations.BottomRightFront.getNumber()) {
-                children[pos] = new Octree(incrementedMidX, incrementedMidY, minXYZ.getZ(), maxXYZ.getX(), maxXYZ.getY(), midZ);
-            } else if (pos == OctLocations.BottomLeftFront.getNumber()) {
-                children[pos] = new Octree(minXYZ.getX(), incrementedMidY, minXYZ.getZ(), midX, maxXYZ.getY(), midZ);
-            } else if (pos == OctLocations.TopLeftBottom.getNumber()) {
-                children[pos] = new Octree(minXYZ.getX(), minXYZ.getY(), incrementedMidZ, midX, midY, maxXYZ.getZ());
-            } else if (pos == OctLocations.TopRightBottom.getNumber()) {
-                children[pos] = new Octree(incrementedMidX, minXYZ.getY(), incrementedMidZ, maxXYZ.getX(), midY, maxXYZ.getZ());
-            } else if (pos == OctLocations.BottomRightBack.getNumber()) {
-                children[pos] = new Octree(incrementedMidX, incrementedMidY, incrementedMidZ, maxXYZ.getX(), maxXYZ.getY(), maxXYZ.getZ());
-            } else if (pos == OctLocations.BottomLeftBack.getNumber()) {
-                children[pos] = new Octree(minXYZ.getX(), incrementedMidY, incrementedMidZ, midX, maxXYZ.getY(), maxXYZ.getZ());
-            }
+            Octree node = createChild(pos);
+
+            getIndex().attachNode(node);
+            children[pos] = node;
+            childrenIds[pos] = node.getNodeId();
+            setDirty(true);
 
-            children[pos].insert(x_, y_, z_, pageIndex_);
-            children[pos].insert(x, y, z, pageIndex);
+            for (Octant octant : child.points)
+                node.insert(octant);
+            node.insert(point);
         }
     }
 
-    public boolean find(Comparable x, Comparable y, Comparable z) {
-        if (!isValid(x, y, z))
-            return false;
+    // Builds the subtree of this empty range node from points in one pass,
+    // each node is created once with its final points instead of being split by repeated inserts
+    void bulkLoad(List<Octant> points) throws DBAppException {
+        Vector<Vector<Octant>> buckets = new Vector<>();
+        for (int i = 0; i < 8; i++)
+            buckets.add(new Vector<>());
+        for (Octant octant : points) {
+            if (!isValid(octant.getKey(0), octant.getKey(1), octant.getKey(2)))
+                throw new DBSchemaException("Invalid coordinates");
+            buckets.get(getPosition(octant.getKey(0), octant.getKey(1), octant.getKey(2))).add(octant);
+        }
 
-        int pos = getPosition(x, y, z);
+        for (int pos = 0; pos < 8; pos++) {
+            Vector<Octant> bucket = buckets.get(pos);
+            if (bucket.isEmpty())
+                continue;
 
-        if (children[pos].points == null)
-            return children[pos].find(x, y, z);
-        if (children[pos].points.isEmpty())
+            if (bucket.size() <= DBConfig.get().getMaxEntriesInOctreeNode() || isSamePoint(bucket)) {
+                Octree leaf = new Octree();
+                leaf.points.addAll(bucket);
+                children[pos] = leaf;
+                continue;
+            }
+
+            Octree node = createChild(pos);
+            getIndex().attachNode(node);
+            children[pos] = node;
+            childrenIds[pos] = node.getNodeId();
+            node.bulkLoad(bucket);
+        }
+        setDirty(true);
+    }
+
+    // returns an empty root with the same bounds
+    Octree emptyCopy() throws DBAppException {
+        return new Octree(min.clone(), max.clone());
+    }
+
+    public boolean find(Comparable x, Comparable y, Comparable z) throws DBAppException {
+        Octree leaf = getLeaf(encode(x), encode(y), encode(z));
+        if (leaf == null)
             return false;
-        return (x.equals(children[pos].points.get(0).getX()) && y.equals(children[pos].points.get(0).getY()) && z.equals(children[pos].points.get(0).getZ()));
+        for (Octant octant : leaf.points)
+            if (octant.isAt(x, y, z))
+                return true;
+        return false;
     }
 
-    public HashSet<Integer> get(Comparable x1, Comparable y1, Comparable z1, Comparable x2, Comparable y2, Comparable z2) {
-        HashSet<Integer> result = new HashSet<>();
+    // adds the rows of the points in the range to result
+    public void get(Comparable x1, Comparable y1, Comparable z1, Comparable x2, Comparable y2, Comparable z2, PageRows result) throws DBAppException {
+        long[] keysFrom = {encode(x1), encode(y1), encode(z1)};
+        long[] keysTo = {encode(x2), encode(y2), encode(z2)};
+        // the range may extend past the bounds of the tree, only an overlap is needed
+        for (int d = 0; d < 3; d++)
+            if (keysFrom[d] > max[d] || keysTo[d] < min[d])
+                return;
 
-        if (!isValid(x1, y1, z1) || !isValid(x2, y2, z2))
-            return result;
-        if (!isRangesIntersect(x1, y1, z1, x2, y2, z2))
-            return result;
+        get(keysFrom, keysTo, new Comparable[]{x1, y1, z1}, new Comparable[]{x2, y2, z2}, result);
+    }
 
+    // The box of each child is computed from the midpoints and tested before the child is loaded. A child whose box
+    // is inside the range adds its whole subtree, the points of the other leaves are compared on their values
+    private void get(long[] keysFrom, long[] keysTo, Comparable[] from, Comparable[] to, PageRows result) throws DBAppException {
         for (int i = 0; i < 8; i++) {
-            if (children[i].points == null) // is non-leaf node
-                result.addAll(children[i].get(x1, y1, z1, x2, y2, z2));
+            if (!isChildOverlapping(i, keysFrom, keysTo))
+                continue;
+            Octree child = getChild(i);
+            if (child == null)
+                continue;
+
+            if (isChildContained(i, keysFrom, keysTo, from, to))
+                child.getAll(result);
+            else if (child.points == null) // is non-leaf node
+                child.get(keysFrom, keysTo, from, to, result);
             else
-                for (Octant octant : children[i].points) {
-                    Comparable x = octant.getX();
-                    Comparable y = octant.getY();
-                    Comparable z = octant.getZ();
-                    if (isInRange(x, y, z, x1, y1, z1, x2, y2, z2))
-                        result.add(octant.getPageIndex());
-                }
+                for (Octant octant : child.points)
+                    if (octant.isBetween(from, to))
+                        result.addRow(octant.getPageIndex(), octant.getClusterKeyValue());
         }
-        return result;
     }
 
-    // return pageIndices of all points with the same x, y, z
-    public HashSet<Integer> get(Comparable x, Comparable y, Comparable z) {
-        HashSet<Integer> pageIndices = new HashSet<>();
-        if (!isValid(x, y, z))
-            return pageIndices;
-
-        int pos = getPosition(x, y, z);
-
-        if (children[pos].points == null)
-            return children[pos].get(x, y, z);
-        if (children[pos].points.isEmpty())
-            return pageIndices;
-        if (x.equals(children[pos].points.get(0).getX()) && y.equals(children[pos].points.get(0).getY()) && z.equals(children[pos].points.get(0).getZ())) {
-            for (int i = 0; i < children[pos].points.size(); i++)
-                pageIndices.add(children[pos].points.get(i).getPageIndex());
-            return pageIndices;
+    // adds the rows of every point of this subtree to result
+    private void getAll(PageRows result) throws DBAppException {
+        if (points != null) {
+            for (Octant octant : points)
+                result.addRow(octant.getPageIndex(), octant.getClusterKeyValue());
+            return;
+        }
+        for (int i = 0; i < 8; i++) {
+            Octree child = getChild(i);
+            if (child != null)
+                child.getAll(result);
         }
-        return pageIndices;
     }
 
-    public boolean remove(Comparable x, Comparable y, Comparable z, int pageIndex) throws DBAppException {
-        if (!isValid(x, y, z))
-            throw new DBSchemaException("Invalid coordinates");
+    // adds the rows of all points with the same x, y, z to result
+    public void get(Comparable x, Comparable y, Comparable z, PageRows result) throws DBAppException {
+        Octree leaf = getLeaf(encode(x), encode(y), encode(z));
+        if (leaf == null)
+            return;
+        for (Octant octant : leaf.points)
+            if (octant.isAt(x, y, z))
+                result.addRow(octant.getPageIndex(), octant.getClusterKeyValue());
+    }
 
-        int pos = getPosition(x, y, z);
+    // duplicates of x, y, z are told apart by their clusterKey
+    public boolean remove(Octant point) throws DBAppException {
+        if (!isValid(point.getKey(0), point.getKey(1), point.getKey(2)))
+            throw new DBSchemaException("Invalid coordinates");
 
-        if (children[pos].points == null)
-            return children[pos].remove(x, y, z, pageIndex);
-        else
-            for (int i = 0; i < children[pos].points.size(); i++)
-                if (x.equals(children[pos].points.get(i).getX()) && y.equals(children[pos].points.get(i).getY()) && z.equals(children[pos].points.get(i).getZ())) {
-                    children[pos].points.remove(i);
-                    return true;
-                }
+        int pos = getPosition(point.getKey(0), point.getKey(1), point.getKey(2));
+        Octree child = getChild(pos);
+        if (child == null)
+            return false;
 
-        return false;
+        if (child.points == null) {
+            if (!child.remove(point))
+                return false;
+            collapse(pos);
+            return true;
+        }
+        int i = child.indexOf(point);
+        if (i < 0)
+            return false;
+        child.points.remove(i);
+        if (child.points.isEmpty())
+            children[pos] = null;
+        setDirty(true);
+        return true;
     }
 
-    public void update(Comparable x, Comparable y, Comparable z, int oldPageIndex, int newPageIndex) {
-        if (!isValid(x, y, z))
+    public void update(Octant point, int newPageIndex) throws DBAppException {
+        if (!isValid(point.getKey(0), point.getKey(1), point.getKey(2)))
             return;
 
-        int pos = getPosition(x, y, z);
-
-        if (children[pos].points == null)
-            children[pos].update(x, y, z, oldPageIndex, newPageIndex);
-        else
-            for (int i = 0; i < children[pos].points.size(); i++)
-                if (children[pos].points.get(i).getPageIndex() == oldPageIndex) {
-                    children[pos].points.get(i).setPageIndex(newPageIndex);
-                    break;
-                }
+        int pos = getPosition(point.getKey(0), point.getKey(1), point.getKey(2));
+        Octree child = getChild(pos);
 
+        if (child == null)
+            return;
+        if (child.points == null) {
+            child.update(point, newPageIndex);
+            return;
+        }
+        int i = child.indexOf(point);
+        if (i >= 0) {
+            child.points.get(i).setPageIndex(newPageIndex);
+            setDirty(true);
+        }
     }
 
-    public void print() {
-        System.out.println("minXYZ: " + minXYZ);
-        System.out.println("maxXYZ: " + maxXYZ);
+    public void print() throws DBAppException {
+        System.out.println("min: " + Arrays.toString(min));
+        System.out.println("max: " + Arrays.toString(max));
         System.out.println("points: " + points);
         System.out.println("children: " + Arrays.toString(children));
         System.out.println();
         for (int i = 0; i < 8; i++)
-            if (children[i].points == null)
-                children[i].print();
+            if (getChild(i) != null && getChild(i).points == null)
+                getChild(i).print();
     }
 
 
     // Helpers
-    private boolean isValid(Comparable x, Comparable y, Comparable z) {
-        if (x.compareTo(minXYZ.getX()) < 0 || x.compareTo(maxXYZ.getX()) > 0
-                || y.compareTo(minXYZ.getY()) < 0 || y.compareTo(maxXYZ.getY()) > 0
-                || z.compareTo(minXYZ.getZ()) < 0 || z.compareTo(maxXYZ.getZ()) > 0)
-            return false;
-        return true;
+    // null for an empty leaf
+    private Octree getChild(int pos) throws DBAppException {
+        if (children[pos] == null && childrenIds[pos] >= 0) // internal child that is not loaded yet
+            children[pos] = (Octree) getIndex().loadNode(childrenIds[pos]);
+        return children[pos];
     }
 
-    private Comparable[] getMidPoints() {
-        Comparable[] midPoints = new Comparable[3];
-        Comparable x1 = minXYZ.getX(), x2 = maxXYZ.getX();
-        Comparable y1 = minXYZ.getY(), y2 = maxXYZ.getY();
-        Comparable z1 = minXYZ.getZ(), z2 = maxXYZ.getZ();
+    // Replaces the range node at pos by a leaf when its children are all leaves holding MaximumEntriesinOctreeNode
+    // points or fewer, the range node is dropped from the index
+    private void collapse(int pos) throws DBAppException {
+        Octree node = getChild(pos);
+        Vector<Octant> nodePoints = new Vector<>();
+        for (int i = 0; i < 8; i++) {
+            if (node.childrenIds[i] >= 0)
+                return;
+            if (node.children[i] != null)
+                nodePoints.addAll(node.children[i].points);
+        }
+        if (nodePoints.size() > DBConfig.get().getMaxEntriesInOctreeNode() && !isSamePoint(nodePoints))
+            return;
+
+        Octree leaf = null;
+        if (!nodePoints.isEmpty()) {
+            leaf = new Octree();
+            leaf.points.addAll(nodePoints);
+        }
+        getIndex().detachNode(node);
+        children[pos] = leaf;
+        childrenIds[pos] = -1;
+        setDirty(true);
+    }
 
-        midPoints[0] = Validation.getMidComparable(x1, x2);
-        midPoints[1] = Validation.getMidComparable(y1, y2);
-        midPoints[2] = Validation.getMidComparable(z1, z2);
+    // the leaf the encoded point belongs to, null if it is empty or the point is outside the bounds
+    private Octree getLeaf(long x, long y, long z) throws DBAppException {
+        Octree node = this;
+        while (node.isValid(x, y, z)) {
+            Octree child = node.getChild(node.getPosition(x, y, z));
+            if (child == null || child.points != null)
+                return child;
+            node = child;
+        }
+        return null;
+    }
 
-        return midPoints;
+    // Only leaves are written inline, internal children are written by the Index as separate nodes
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        if (points == null)
+            for (int i = 0; i < 8; i++)
+                out.writeObject(childrenIds[i] < 0 ? children[i] : null);
     }
 
-    private int getPosition(Comparable x, Comparable y, Comparable z) {
-        Comparable[] mids = getMidPoints();
-        Comparable midX = mids[0], midY = mids[1], midZ = mids[2];
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        children = new Octree[8];
+        if (points == null)
+            for (int i = 0; i < 8; i++)
+                children[i] = (Octree) in.readObject();
+    }
 
-        int pos;
-        if (x.compareTo(midX) <= 0) {
-            if (y.compareTo(midY) <= 0) {
-                if (z.compareTo(midZ) <= 0)
-                    pos = OctLocations.TopLeftFront.getNumber();
-                else
-                    pos = OctLocations.TopLeftBottom.getNumber();
-            } else {
-                if (z.compareTo(midZ) <= 0)
-                    pos = OctLocations.BottomLeftFront.getNumber();
-                else
-                    pos = OctLocations.BottomLeftBack.getNumber();
-            }
-        } else {
-            if (y.compareTo(midY) <= 0) {
-                if (z.compareTo(midZ) <= 0)
-                    pos = OctLocations.TopRightFront.getNumber();
-                else
-                    pos = OctLocations.TopRightBottom.getNumber();
-            } else {
-                if (z.compareTo(midZ) <= 0)
-                    pos = OctLocations.BottomRightFront.getNumber();
-                else
-                    pos = OctLocations.BottomRightBack.getNumber();
-            }
+    // returns an empty range node covering the octant pos of this node
+    private Octree createChild(int pos) throws DBAppException {
+        long[] childMin = new long[3];
+        long[] childMax = new long[3];
+        for (int d = 0; d < 3; d++) {
+            childMin[d] = getChildMin(pos, d);
+            childMax[d] = getChildMax(pos, d);
         }
-        return pos;
+        return new Octree(childMin, childMax);
     }
 
-    private boolean isRangesIntersect(Comparable x1, Comparable y1, Comparable z1, Comparable x2, Comparable y2, Comparable z2) {
-        if (x1.compareTo(maxXYZ.getX()) > 0 || x2.compareTo(minXYZ.getX()) < 0
-                || y1.compareTo(maxXYZ.getY()) > 0 || y2.compareTo(minXYZ.getY()) < 0
-                || z1.compareTo(maxXYZ.getZ()) > 0 || z2.compareTo(minXYZ.getZ()) < 0)
-            return false;
+    private long getChildMin(int pos, int d) {
+        return (pos & (1 << d)) == 0 ? min[d] : mid[d] + 1;
+    }
+
+    private long getChildMax(int pos, int d) {
+        return (pos & (1 << d)) == 0 ? mid[d] : max[d];
+    }
+
+    private boolean isChildOverlapping(int pos, long[] keysFrom, long[] keysTo) {
+        for (int d = 0; d < 3; d++)
+            if (keysFrom[d] > getChildMax(pos, d) || keysTo[d] < getChildMin(pos, d))
+                return false;
         return true;
     }
 
-    private boolean isInRange(Comparable x, Comparable y, Comparable z, Comparable x1, Comparable y1, Comparable z1, Comparable x2, Comparable y2, Comparable z2) {
-        if (x.compareTo(x1) >= 0 && x.compareTo(x2) <= 0
-                && y.compareTo(y1) >= 0 && y.compareTo(y2) <= 0
-                && z.compareTo(z1) >= 0 && z.compareTo(z2) <= 0)
-            return true;
-        return false;
+    // Strings are only encoded by a prefix, so a string bound equal to the encoded bound of the box
+    // does not tell whether every value of the box is in the range
+    private boolean isChildContained(int pos, long[] keysFrom, long[] keysTo, Comparable[] from, Comparable[] to) {
+        for (int d = 0; d < 3; d++) {
+            boolean isExact = !(from[d] instanceof String);
+            long childMin = getChildMin(pos, d);
+            long childMax = getChildMax(pos, d);
+            if (keysFrom[d] > childMin || (keysFrom[d] == childMin && !isExact))
+                return false;
+            if (keysTo[d] < childMax || (keysTo[d] == childMax && !isExact))
+                return false;
+        }
+        return true;
+    }
+
+    private boolean isValid(long x, long y, long z) {
+        return x >= min[0] && x <= max[0] && y >= min[1] && y <= max[1] && z >= min[2] && z <= max[2];
+    }
+
+    private int getPosition(long x, long y, long z) {
+        return (x > mid[0] ? 1 : 0) | (y > mid[1] ? 2 : 0) | (z > mid[2] ? 4 : 0);
+    }
+
+    // the position of the point with the same clusterKey in this leaf, -1 if there is none
+    private int indexOf(Octant point) {
+        for (int i = 0; i < points.size(); i++)
+            if (points.get(i).getClusterKeyValue().equals(point.getClusterKeyValue()))
+                return i;
+        return -1;
+    }
+
+    private static boolean isSamePoint(List<Octant> points) {
+        Octant first = points.get(0);
+        for (Octant octant : points)
+            if (!octant.hasSameKey(first))
+                return false;
+        return true;
     }
 
 }
@@ -273,24 +408,18 @@ class Octant implements Serializable {
     private Comparable x;
     private Comparable y;
     private Comparable z;
+    private Comparable clusterKeyValue; // identifies the row among the duplicates of x, y, z
     private int pageIndex;
+    private transient long[] keys; // x, y and z encoded, computed when first needed
 
-    public Octant(Comparable x, Comparable y, Comparable z, int pageIndex) {
+    public Octant(Comparable x, Comparable y, Comparable z, Comparable clusterKeyValue, int pageIndex) {
         this.x = x;
         this.y = y;
         this.z = z;
+        this.clusterKeyValue = clusterKeyValue;
         this.pageIndex = pageIndex;
     }
 
-    public Octant(Comparable x, Comparable y, Comparable z) {
-        this.x = x;
-        this.y = y;
-        this.z = z;
-    }
-
-    public Octant() {
-    }
-
     public Comparable getX() {
         return x;
     }
@@ -303,6 +432,30 @@ class Octant implements Serializable {
         return z;
     }
 
+    long getKey(int dimension) {
+        if (keys == null)
+            keys = new long[]{Octree.encode(x), Octree.encode(y), Octree.encode(z)};
+        return keys[dimension];
+    }
+
+    boolean hasSameKey(Octant octant) {
+        return getKey(0) == octant.getKey(0) && getKey(1) == octant.getKey(1) && getKey(2) == octant.getKey(2);
+    }
+
+    boolean isAt(Comparable x, Comparable y, Comparable z) {
+        return this.x.equals(x) && this.y.equals(y) && this.z.equals(z);
+    }
+
+    boolean isBetween(Comparable[] from, Comparable[] to) {
+        return x.compareTo(from[0]) >= 0 && x.compareTo(to[0]) <= 0
+                && y.compareTo(from[1]) >= 0 && y.compareTo(to[1]) <= 0
+                && z.compareTo(from[2]) >= 0 && z.compareTo(to[2]) <= 0;
+    }
+
+    public Comparable getClusterKeyValue() {
+        return clusterKeyValue;
+    }
+
     public int getPageIndex() {
         return pageIndex;
     }
@@ -315,24 +468,3 @@ class Octant implements Serializable {
         return "(" + x + ", " + y + ", " + z + ")";
     }
 }
-
-enum OctLocations {
-    TopLeftFront(0),
-    TopRightFront(1),
-    BottomRightFront(2),
-    BottomLeftFront(3),
-    TopLeftBottom(4),
-    TopRightBottom(5),
-    BottomRightBack(6),
-    BottomLeftBack(7);
-
-    int num;
-
-    OctLocations(int num) {
-        this.num = num;
-    }
-
-    int getNumber() {
-        return num;
-    }
-}
\ No newline at end of file
@@ -0,0 +1,114 @@
+package model;
+
+import exceptions.DBAppException;
+import utils.DBConfig;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+// Index on exactly three columns, the tuples are points of an Octree bounded by the min and max of the columns
+public class OctreeIndex extends Index {
+
+    public OctreeIndex(String tableName, String[] ColNames, Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
+        super(tableName, ColNames);
+        this.setRoot(min, max);
+    }
+
+    @Override
+    public IndexType getType() {
+        return IndexType.OCTREE;
+    }
+
+    @Override
+    public void insertTuple(Tuple tuple, int pageIndex) throws DBAppException {
+        getRoot().insert(getPoint(tuple, pageIndex));
+    }
+
+    @Override
+    public void deleteTuple(Tuple tuple, int pageIndex) throws DBAppException {
+        getRoot().remove(getPoint(tuple, pageIndex));
+    }
+
+    @Override
+    public void updateTuplePageIndex(Tuple tuple, int oldPageIndex, int newPageIndex) throws DBAppException {
+        getRoot().update(getPoint(tuple, oldPageIndex), newPageIndex);
+    }
+
+    @Override
+    public PageRows getRows(Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
+        String[] colNames = getColNames();
+        Comparable x1 = (Comparable) min.get(colNames[0]);
+        Comparable y1 = (Comparable) min.get(colNames[1]);
+        Comparable z1 = (Comparable) min.get(colNames[2]);
+        Comparable x2 = (Comparable) max.get(colNames[0]);
+        Comparable y2 = (Comparable) max.get(colNames[1]);
+        Comparable z2 = (Comparable) max.get(colNames[2]);
+
+        PageRows rows = new PageRows();
+        getRoot().get(x1, y1, z1, x2, y2, z2, rows);
+        return rows;
+    }
+
+    @Override
+    public PageRows getRows(Hashtable<String, Object> htblColNameValue) throws DBAppException {
+        String[] colNames = getColNames();
+        Comparable x = (Comparable) htblColNameValue.get(colNames[0]);
+        Comparable y = (Comparable) htblColNameValue.get(colNames[1]);
+        Comparable z = (Comparable) htblColNameValue.get(colNames[2]);
+
+        PageRows rows = new PageRows();
+        getRoot().get(x, y, z, rows);
+        return rows;
+    }
+
+    // the depth of the tree and about one node per MaximumEntriesinOctreeNode matching rows below it
+    @Override
+    double estimateNodesRead(int tableSize, double rows, double leadingRows) {
+        double entriesPerNode = DBConfig.get().getMaxEntriesInOctreeNode();
+        double depth = Math.max(1, Math.log(tableSize / entriesPerNode) / Math.log(8));
+        return depth + rows / entriesPerNode;
+    }
+
+    @Override
+    Object getEntry(Tuple tuple, int pageIndex) {
+        return getPoint(tuple, pageIndex);
+    }
+
+    @Override
+    void bulkLoad(Vector<Object> entries) throws DBAppException {
+        Vector<Octant> points = new Vector<>();
+        for (Object entry : entries)
+            points.add((Octant) entry);
+
+        Octree root = getRoot().emptyCopy();
+        clearNodes();
+        attachNode(root);
+
+        root.bulkLoad(points);
+    }
+
+    private Octant getPoint(Tuple tuple, int pageIndex) {
+        String[] colNames = getColNames();
+        Comparable x = (Comparable) tuple.getColValue(colNames[0]);
+        Comparable y = (Comparable) tuple.getColValue(colNames[1]);
+        Comparable z = (Comparable) tuple.getColValue(colNames[2]);
+
+        return new Octant(x, y, z, (Comparable) tuple.getClusterKeyValue(), pageIndex);
+    }
+
+    private void setRoot(Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
+        String[] colNames = getColNames();
+        Comparable col1Min = (Comparable) min.get(colNames[0]);
+        Comparable col1Max = (Comparable) max.get(colNames[0]);
+        Comparable col2Min = (Comparable) min.get(colNames[1]);
+        Comparable col2Max = (Comparable) max.get(colNames[1]);
+        Comparable col3Min = (Comparable) min.get(colNames[2]);
+        Comparable col3Max = (Comparable) max.get(colNames[2]);
+
+        attachNode(new Octree(col1Min, col2Min, col3Min, col1Max, col2Max, col3Max));
+    }
+
+    private Octree getRoot() throws DBAppException {
+        return (Octree) loadNode(ROOT_NODE_ID);
+    }
+}
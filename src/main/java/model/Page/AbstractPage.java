@@ -1,10 +1,8 @@
 package model.Page;
 
-import exceptions.DBAppException;
-import exceptions.DBQueryException;
+import utils.DBConfig;
 import utils.Utils;
 
-import java.io.IOException;
 import java.io.Serializable;
 
 public abstract class AbstractPage implements Serializable {
@@ -60,28 +58,16 @@ public abstract class AbstractPage implements Serializable {
         return this.size == 0;
     }
 
-    public boolean isFull() throws DBAppException {
-        try {
-            return this.size == Utils.getMaxRowsCountInPage();
-        } catch (IOException e) {
-            throw new DBQueryException("Failed to get max rows count in page");
-        }
+    public boolean isFull() {
+        return this.size == DBConfig.get().getMaxRowsCountInPage();
     }
 
-    public boolean isOverflow() throws DBAppException {
-        try {
-            return this.size > Utils.getMaxRowsCountInPage();
-        } catch (IOException e) {
-            throw new DBQueryException("Failed to get max rows count in page");
-        }
+    public boolean isOverflow() {
+        return this.size > DBConfig.get().getMaxRowsCountInPage();
     }
 
-    public int getEmptySpace() throws DBAppException {
-        try {
-            return Utils.getMaxRowsCountInPage() - getSize();
-        } catch (IOException e) {
-            throw new DBQueryException("Failed to get max rows count in page");
-        }
+    public int getEmptySpace() {
+        return DBConfig.get().getMaxRowsCountInPage() - getSize();
     }
 
 }
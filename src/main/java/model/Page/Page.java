@@ -4,9 +4,10 @@ import exceptions.DBAlreadyExistsException;
 import exceptions.DBAppException;
 import exceptions.DBNotFoundException;
 import model.Tuple;
+import utils.DBConfig;
 import utils.Utils;
 
-import java.io.IOException;
+import java.util.List;
 import java.util.Vector;
 
 public class Page extends AbstractPage {
@@ -19,6 +20,15 @@ public class Page extends AbstractPage {
         this.pageReference = new PageReference(tableName, pageIndex);
     }
 
+    // Used when decoding a page file, tuples must be sorted by clusterKey
+    public Page(String tableName, int pageIndex, Vector<Tuple> tuples) {
+        super(tableName, pageIndex);
+        this.tuples = tuples;
+        this.pageReference = new PageReference(tableName, pageIndex);
+
+        updateClusterKeyMinMaxSize(); // the zone map was kept in the PageReference of the table
+    }
+
     public Tuple findTuple(Object clusterKeyValue) throws DBAppException {
         int index = Utils.binarySearch(tuples, clusterKeyValue);
 
@@ -27,6 +37,12 @@ public class Page extends AbstractPage {
         return this.tuples.get(index);
     }
 
+    // the slot of the tuple with this clusterKey, -1 if the page has none
+    public int findSlot(Object clusterKeyValue) {
+        int index = Utils.binarySearch(tuples, clusterKeyValue);
+        return index < 0 ? -1 : index;
+    }
+
     public void insertTuple(Tuple tuple) throws DBAppException {
         int index = Utils.binarySearch(tuples, tuple);
         if (index >= 0)
@@ -35,7 +51,14 @@ public class Page extends AbstractPage {
         int insertionIndex = Utils.getInsertionIndex(index);
         this.tuples.add(insertionIndex, tuple);
 
-        updateMinMaxSize();
+        // widening the zone map is enough, no value left the page
+        ZoneMap zoneMap = this.pageReference.getZoneMap();
+        if (zoneMap == null)
+            updateMinMaxSize();
+        else {
+            zoneMap.add(tuple);
+            updateClusterKeyMinMaxSize();
+        }
     }
 
     public void deleteTuple(Tuple tuple) throws DBAppException {
@@ -59,8 +82,26 @@ public class Page extends AbstractPage {
         updateMinMaxSize();
     }
 
+    // Moves the tuples from position from to the end of this page to the end of page, whose tuples must all be smaller.
+    // Returns the moved tuples
+    public Vector<Tuple> moveTuplesTo(Page page, int from) {
+        List<Tuple> movedTuples = this.tuples.subList(from, getSize());
+        Vector<Tuple> result = new Vector<>(movedTuples);
+        page.tuples.addAll(result);
+        movedTuples.clear();
+
+        this.updateMinMaxSize();
+        page.updateMinMaxSize();
+        return result;
+    }
+
     // Helper Method
     public void updateMinMaxSize() {
+        this.pageReference.setZoneMap(ZoneMap.of(this.tuples));
+        updateClusterKeyMinMaxSize();
+    }
+
+    private void updateClusterKeyMinMaxSize() {
         setSize(tuples.size());
         setMin(getSize() == 0 ? null : getMinTuple().getClusterKeyValue());
         setMax(getSize() == 0 ? null : getMaxTuple().getClusterKeyValue());
@@ -71,18 +112,13 @@ public class Page extends AbstractPage {
     }
 
     public String toString() {
-        try {
-            int pageIndex = getPageIndex();
-            int pageMaxSize = Utils.getMaxRowsCountInPage();
-
-            String s = "Page " + (pageIndex + 1) + ":\n";
-            for (int i = 0; i < getSize(); i++)
-                s += (pageIndex * pageMaxSize + i + 1) + ". " + getTuple(i).toString() + "\n";
-            return s;
-        } catch (IOException e) {
-            return null;
-        }
+        int pageIndex = getPageIndex();
+        int pageMaxSize = DBConfig.get().getMaxRowsCountInPage();
 
+        String s = "Page " + (pageIndex + 1) + ":\n";
+        for (int i = 0; i < getSize(); i++)
+            s += (pageIndex * pageMaxSize + i + 1) + ". " + getTuple(i).toString() + "\n";
+        return s;
     }
 
     public Tuple getTuple(int index) {
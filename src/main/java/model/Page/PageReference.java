@@ -1,13 +1,31 @@
 package model.Page;
 
+import model.Predicate.KeyRange;
+
+import java.util.Map;
+
 // implements Comparable to be able to use binarySearch
 public class PageReference extends AbstractPage implements Comparable {
+    private ZoneMap zoneMap; // null for pages written before zone maps were kept
 
     // Access modifier is default to prevent initialization from outside the package
     PageReference(String tableName, int pageIndex) {
         super(tableName, pageIndex);
     }
 
+    public ZoneMap getZoneMap() {
+        return zoneMap;
+    }
+
+    void setZoneMap(ZoneMap zoneMap) {
+        this.zoneMap = zoneMap;
+    }
+
+    // false only if the zone map proves that no tuple of the page has its values in colRanges
+    public boolean mayMatch(Map<String, KeyRange> colRanges) {
+        return zoneMap == null || zoneMap.mayMatch(colRanges);
+    }
+
     @Override
     public int compareTo(Object o) {
         if (o instanceof PageReference) {
@@ -0,0 +1,86 @@
+package model.Page;
+
+import model.Predicate.KeyRange;
+import model.Tuple;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Map;
+
+// Min, max and value counts of every column of a page, kept in its PageReference so that a page
+// whose values cannot satisfy a predicate is skipped without reading it
+public class ZoneMap implements Serializable {
+    private final Hashtable<String, Comparable> min;
+    private final Hashtable<String, Comparable> max;
+    private final Hashtable<String, Integer> valuesCount; // non null values
+    private final Hashtable<String, Integer> distinctCount; // exact after a rebuild, only grows on insert
+    private int size;
+
+    ZoneMap() {
+        this.min = new Hashtable<>();
+        this.max = new Hashtable<>();
+        this.valuesCount = new Hashtable<>();
+        this.distinctCount = new Hashtable<>();
+    }
+
+    static ZoneMap of(Iterable<Tuple> tuples) {
+        ZoneMap zoneMap = new ZoneMap();
+        Hashtable<String, HashSet<Object>> distinctValues = new Hashtable<>();
+        for (Tuple tuple : tuples) {
+            zoneMap.add(tuple);
+            for (String colName : tuple.getColNames())
+                distinctValues.computeIfAbsent(colName, k -> new HashSet<>()).add(tuple.getColValue(colName));
+        }
+        for (Map.Entry<String, HashSet<Object>> entry : distinctValues.entrySet())
+            zoneMap.distinctCount.put(entry.getKey(), entry.getValue().size());
+        return zoneMap;
+    }
+
+    void add(Tuple tuple) {
+        size++;
+        for (String colName : tuple.getColNames()) {
+            Comparable value = (Comparable) tuple.getColValue(colName);
+            Comparable colMin = min.get(colName);
+            Comparable colMax = max.get(colName);
+
+            // a value outside of [min, max] was not seen before
+            if (colMin == null || value.compareTo(colMin) < 0 || value.compareTo(colMax) > 0)
+                distinctCount.merge(colName, 1, Integer::sum);
+            if (colMin == null || value.compareTo(colMin) < 0)
+                min.put(colName, value);
+            if (colMax == null || value.compareTo(colMax) > 0)
+                max.put(colName, value);
+            valuesCount.merge(colName, 1, Integer::sum);
+        }
+    }
+
+    // false only if no tuple of the page can have its values in colRanges, columns without a range are not checked
+    public boolean mayMatch(Map<String, KeyRange> colRanges) {
+        for (Map.Entry<String, KeyRange> entry : colRanges.entrySet()) {
+            KeyRange range = entry.getValue();
+            Comparable colMin = min.get(entry.getKey());
+            if (range.isAll())
+                continue;
+            if (colMin == null || !range.overlaps(colMin, max.get(entry.getKey()))) // a bounded range never matches nulls
+                return false;
+        }
+        return true;
+    }
+
+    public Comparable getMin(String colName) {
+        return min.get(colName);
+    }
+
+    public Comparable getMax(String colName) {
+        return max.get(colName);
+    }
+
+    public int getNullsCount(String colName) {
+        return size - valuesCount.getOrDefault(colName, 0);
+    }
+
+    public int getDistinctCount(String colName) {
+        return distinctCount.getOrDefault(colName, 0);
+    }
+}
@@ -0,0 +1,70 @@
+package model;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+// Row pointers of a lookup grouped by page: the clusterKey values of the rows an index found in each page,
+// or the whole page when every row of it has to be tested. The clusterKey is the row identifier because it stays valid
+// when a row moves to another page, the index only updates the page it points to
+public class PageRows {
+    private final HashMap<Integer, Set<Object>> rowsByPage = new HashMap<>(); // null for a whole page
+
+    public static PageRows of(Collection<Integer> pageIndices) {
+        PageRows pageRows = new PageRows();
+        for (int pageIndex : pageIndices)
+            pageRows.addPage(pageIndex);
+        return pageRows;
+    }
+
+    public void addRow(int pageIndex, Object clusterKeyValue) {
+        if (rowsByPage.containsKey(pageIndex) && rowsByPage.get(pageIndex) == null)
+            return;
+        rowsByPage.computeIfAbsent(pageIndex, k -> new HashSet<>()).add(clusterKeyValue);
+    }
+
+    public void addPage(int pageIndex) {
+        rowsByPage.put(pageIndex, null);
+    }
+
+    // the rows of either
+    public void addAll(PageRows other) {
+        for (Integer pageIndex : other.rowsByPage.keySet()) {
+            Set<Object> otherRows = other.rowsByPage.get(pageIndex);
+            if (otherRows == null)
+                addPage(pageIndex);
+            else
+                for (Object clusterKeyValue : otherRows)
+                    addRow(pageIndex, clusterKeyValue);
+        }
+    }
+
+    // the rows of both, a whole page keeps the rows of the other one
+    public void retainAll(PageRows other) {
+        for (Integer pageIndex : new HashSet<>(rowsByPage.keySet())) {
+            if (!other.rowsByPage.containsKey(pageIndex)) {
+                rowsByPage.remove(pageIndex);
+                continue;
+            }
+            Set<Object> otherRows = other.rowsByPage.get(pageIndex);
+            if (otherRows == null)
+                continue;
+
+            Set<Object> rows = rowsByPage.get(pageIndex);
+            if (rows == null)
+                rowsByPage.put(pageIndex, new HashSet<>(otherRows));
+            else if (rows.retainAll(otherRows) && rows.isEmpty())
+                rowsByPage.remove(pageIndex);
+        }
+    }
+
+    public Set<Integer> getPageIndices() {
+        return rowsByPage.keySet();
+    }
+
+    // null when every row of the page is a candidate
+    public Set<Object> getRows(int pageIndex) {
+        return rowsByPage.get(pageIndex);
+    }
+}
@@ -0,0 +1,48 @@
+package model.Predicate;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+
+public enum CompareOperator {
+    EQUAL("="),
+    NOT_EQUAL("!="),
+    GREATER(">"),
+    GREATER_OR_EQUAL(">="),
+    LESS("<"),
+    LESS_OR_EQUAL("<=");
+
+    private final String symbol;
+
+    CompareOperator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public static CompareOperator of(String symbol) throws DBAppException {
+        for (CompareOperator operator : values())
+            if (operator.symbol.equals(symbol))
+                return operator;
+        throw new DBSchemaException("Invalid compare operator: " + symbol);
+    }
+
+    // compare is the result of value.compareTo(operand)
+    public boolean test(int compare) {
+        switch (this) {
+            case EQUAL:
+                return compare == 0;
+            case NOT_EQUAL:
+                return compare != 0;
+            case GREATER:
+                return compare > 0;
+            case GREATER_OR_EQUAL:
+                return compare >= 0;
+            case LESS:
+                return compare < 0;
+            default: // LESS_OR_EQUAL
+                return compare <= 0;
+        }
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+}
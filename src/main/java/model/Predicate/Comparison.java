@@ -0,0 +1,54 @@
+package model.Predicate;
+
+import model.Schema.Column;
+import model.Tuple;
+import utils.PageView;
+
+// column <operator> value, with the column resolved to its position and type when the query is compiled
+public class Comparison implements Predicate {
+    private final String colName;
+    private final int col;
+    private final CompareOperator operator;
+    private final Comparable value;
+
+    public Comparison(Column column, CompareOperator operator, Comparable value) {
+        this.colName = column.getName();
+        this.col = column.getPosition();
+        this.operator = operator;
+        this.value = value;
+    }
+
+    @Override
+    public boolean test(Tuple tuple) {
+        Comparable colValue = (Comparable) tuple.getColValue(colName);
+        if (colValue == null)
+            return false;
+        return operator.test(colValue.compareTo(value));
+    }
+
+    @Override
+    public boolean test(PageView pageView, int slot) {
+        if (pageView.isNull(slot, col))
+            return false;
+        return operator.test(pageView.compare(slot, col, value));
+    }
+
+    @Override
+    public KeyRange getRange(String colName) {
+        if (!this.colName.equals(colName) || value == null)
+            return KeyRange.ALL;
+        return KeyRange.of(operator, value);
+    }
+
+    public String getColName() {
+        return colName;
+    }
+
+    public CompareOperator getOperator() {
+        return operator;
+    }
+
+    public Comparable getValue() {
+        return value;
+    }
+}
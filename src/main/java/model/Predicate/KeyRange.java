@@ -0,0 +1,116 @@
+package model.Predicate;
+
+// The values of one column that can satisfy a Predicate, null bounds are unbounded.
+// A range is only ever wider than the exact set, so rows outside of it can be skipped without testing them
+public class KeyRange {
+    public static final KeyRange ALL = new KeyRange(null, true, null, true);
+
+    private final Comparable min;
+    private final boolean isMinInclusive;
+    private final Comparable max;
+    private final boolean isMaxInclusive;
+
+    public KeyRange(Comparable min, boolean isMinInclusive, Comparable max, boolean isMaxInclusive) {
+        this.min = min;
+        this.isMinInclusive = isMinInclusive;
+        this.max = max;
+        this.isMaxInclusive = isMaxInclusive;
+    }
+
+    public static KeyRange of(CompareOperator operator, Comparable value) {
+        switch (operator) {
+            case EQUAL:
+                return new KeyRange(value, true, value, true);
+            case GREATER:
+                return new KeyRange(value, false, null, true);
+            case GREATER_OR_EQUAL:
+                return new KeyRange(value, true, null, true);
+            case LESS:
+                return new KeyRange(null, true, value, false);
+            case LESS_OR_EQUAL:
+                return new KeyRange(null, true, value, true);
+            default: // NOT_EQUAL
+                return ALL;
+        }
+    }
+
+    public KeyRange intersect(KeyRange other) {
+        boolean isOtherMin = compareMin(other) < 0;
+        boolean isOtherMax = compareMax(other) > 0;
+        return new KeyRange(isOtherMin ? other.min : min, isOtherMin ? other.isMinInclusive : isMinInclusive,
+                isOtherMax ? other.max : max, isOtherMax ? other.isMaxInclusive : isMaxInclusive);
+    }
+
+    // the smallest range containing both
+    public KeyRange union(KeyRange other) {
+        boolean isOtherMin = compareMin(other) > 0;
+        boolean isOtherMax = compareMax(other) < 0;
+        return new KeyRange(isOtherMin ? other.min : min, isOtherMin ? other.isMinInclusive : isMinInclusive,
+                isOtherMax ? other.max : max, isOtherMax ? other.isMaxInclusive : isMaxInclusive);
+    }
+
+    public Comparable getMin() {
+        return min;
+    }
+
+    public Comparable getMax() {
+        return max;
+    }
+
+    public boolean isAll() {
+        return min == null && max == null;
+    }
+
+    public boolean isEmpty() {
+        if (min == null || max == null)
+            return false;
+        int compare = min.compareTo(max);
+        return compare > 0 || (compare == 0 && !(isMinInclusive && isMaxInclusive));
+    }
+
+    // value is smaller than every value of the range, null values are never outside the range
+    public boolean isBelow(Object value) {
+        if (min == null || value == null)
+            return false;
+        int compare = min.compareTo(value);
+        return compare > 0 || (compare == 0 && !isMinInclusive);
+    }
+
+    // value is greater than every value of the range
+    public boolean isAbove(Object value) {
+        if (max == null || value == null)
+            return false;
+        int compare = max.compareTo(value);
+        return compare < 0 || (compare == 0 && !isMaxInclusive);
+    }
+
+    public boolean contains(Object value) {
+        return value != null && !isBelow(value) && !isAbove(value) && !isEmpty();
+    }
+
+    public boolean overlaps(Object min, Object max) {
+        return !isBelow(max) && !isAbove(min) && !isEmpty();
+    }
+
+    // Helper methods
+
+    // < 0 if this range starts before other
+    private int compareMin(KeyRange other) {
+        if (min == null || other.min == null)
+            return min == other.min ? 0 : (min == null ? -1 : 1);
+        int compare = min.compareTo(other.min);
+        if (compare == 0 && isMinInclusive != other.isMinInclusive)
+            return isMinInclusive ? -1 : 1;
+        return compare;
+    }
+
+    // > 0 if this range ends after other
+    private int compareMax(KeyRange other) {
+        if (max == null || other.max == null)
+            return max == other.max ? 0 : (max == null ? 1 : -1);
+        int compare = max.compareTo(other.max);
+        if (compare == 0 && isMaxInclusive != other.isMaxInclusive)
+            return isMaxInclusive ? 1 : -1;
+        return compare;
+    }
+}
@@ -0,0 +1,17 @@
+package model.Predicate;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+
+public enum LogicalOperator {
+    AND,
+    OR,
+    XOR;
+
+    public static LogicalOperator of(String name) throws DBAppException {
+        for (LogicalOperator operator : values())
+            if (operator.name().equalsIgnoreCase(name))
+                return operator;
+        throw new DBSchemaException("Invalid logic operator: " + name);
+    }
+}
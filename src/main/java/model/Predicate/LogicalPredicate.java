@@ -0,0 +1,61 @@
+package model.Predicate;
+
+import model.Tuple;
+import utils.PageView;
+
+// left <operator> right, AND and OR do not evaluate right when left decides the result
+public class LogicalPredicate implements Predicate {
+    private final Predicate left;
+    private final Predicate right;
+    private final LogicalOperator operator;
+
+    public LogicalPredicate(Predicate left, LogicalOperator operator, Predicate right) {
+        this.left = left;
+        this.right = right;
+        this.operator = operator;
+    }
+
+    @Override
+    public boolean test(Tuple tuple) {
+        switch (operator) {
+            case AND:
+                return left.test(tuple) && right.test(tuple);
+            case OR:
+                return left.test(tuple) || right.test(tuple);
+            default: // XOR
+                return left.test(tuple) ^ right.test(tuple);
+        }
+    }
+
+    @Override
+    public boolean test(PageView pageView, int slot) {
+        switch (operator) {
+            case AND:
+                return left.test(pageView, slot) && right.test(pageView, slot);
+            case OR:
+                return left.test(pageView, slot) || right.test(pageView, slot);
+            default: // XOR
+                return left.test(pageView, slot) ^ right.test(pageView, slot);
+        }
+    }
+
+    // XOR is satisfied only if one of its sides is, so it is bounded like OR
+    @Override
+    public KeyRange getRange(String colName) {
+        KeyRange leftRange = left.getRange(colName);
+        KeyRange rightRange = right.getRange(colName);
+        return operator == LogicalOperator.AND ? leftRange.intersect(rightRange) : leftRange.union(rightRange);
+    }
+
+    public Predicate getLeft() {
+        return left;
+    }
+
+    public Predicate getRight() {
+        return right;
+    }
+
+    public LogicalOperator getOperator() {
+        return operator;
+    }
+}
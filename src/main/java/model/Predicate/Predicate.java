@@ -0,0 +1,33 @@
+package model.Predicate;
+
+import model.Tuple;
+import utils.PageView;
+
+// A condition compiled once per query and evaluated against every candidate tuple,
+// either decoded (Tuple) or in place inside an encoded page (PageView)
+public interface Predicate {
+    // satisfied by every tuple, the predicate of a select without conditions
+    Predicate TRUE = new Predicate() {
+        @Override
+        public boolean test(Tuple tuple) {
+            return true;
+        }
+
+        @Override
+        public boolean test(PageView pageView, int slot) {
+            return true;
+        }
+
+        @Override
+        public KeyRange getRange(String colName) {
+            return KeyRange.ALL;
+        }
+    };
+
+    boolean test(Tuple tuple);
+
+    boolean test(PageView pageView, int slot);
+
+    // every value of colName in a tuple satisfying the predicate lies in the returned range
+    KeyRange getRange(String colName);
+}
@@ -0,0 +1,64 @@
+package model.Predicate;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+import model.SQLTerm;
+import model.Schema.Column;
+import model.Schema.TableSchema;
+
+import java.util.Map;
+
+// Builds the Predicate of a query once, so evaluating it per tuple does no lookups, parsing or allocation
+public class PredicateCompiler {
+
+    // AND binds tighter than XOR, which binds tighter than OR: c0 OR c1 AND c2 XOR c3 is c0 OR ((c1 AND c2) XOR c3)
+    public static Predicate compile(Comparison[] comparisons, String[] strarrOperators) throws DBAppException {
+        if (comparisons.length == 0)
+            return Predicate.TRUE;
+
+        Predicate or = null, xor = null, and = comparisons[0];
+        for (int i = 1; i < comparisons.length; i++) {
+            LogicalOperator operator = LogicalOperator.of(strarrOperators[i - 1]);
+            if (operator == LogicalOperator.AND) {
+                and = new LogicalPredicate(and, LogicalOperator.AND, comparisons[i]);
+                continue;
+            }
+            xor = combine(xor, LogicalOperator.XOR, and);
+            if (operator == LogicalOperator.OR) {
+                or = combine(or, LogicalOperator.OR, xor);
+                xor = null;
+            }
+            and = comparisons[i];
+        }
+        xor = combine(xor, LogicalOperator.XOR, and);
+        return combine(or, LogicalOperator.OR, xor);
+    }
+
+    private static Predicate combine(Predicate left, LogicalOperator operator, Predicate right) {
+        return left == null ? right : new LogicalPredicate(left, operator, right);
+    }
+
+    public static Comparison compile(SQLTerm term, TableSchema schema) throws DBAppException {
+        Column column = schema.getColumn(term._strColumnName);
+        if (column == null)
+            throw new DBSchemaException("Column names do not match table schema");
+        if (!column.getType().isInstance(term._objValue))
+            throw new DBSchemaException("Columns metadata do not match table schema");
+
+        return new Comparison(column, CompareOperator.of(term._strOperator), (Comparable) term._objValue);
+    }
+
+    // col1 = value1 AND col2 = value2 ..., TRUE without columns
+    public static Predicate compileEquals(Map<String, Object> htblColNameValue, TableSchema schema) throws DBAppException {
+        Predicate predicate = null;
+        for (Map.Entry<String, Object> entry : htblColNameValue.entrySet()) {
+            Column column = schema.getColumn(entry.getKey());
+            if (column == null)
+                throw new DBSchemaException("Column names do not match table schema");
+
+            Comparison comparison = new Comparison(column, CompareOperator.EQUAL, (Comparable) entry.getValue());
+            predicate = predicate == null ? comparison : new LogicalPredicate(predicate, LogicalOperator.AND, comparison);
+        }
+        return predicate == null ? Predicate.TRUE : predicate;
+    }
+}
@@ -0,0 +1,64 @@
+package model;
+
+import model.Predicate.KeyRange;
+
+import java.util.Vector;
+
+// How Table.plan() decided to find the tuples of a predicate: the pages to read, in clusterKey order,
+// the rows an index found in them and the clusterKey range that bounds the slots to test inside each page
+public class QueryPlan {
+    public enum AccessPath {
+        FULL_SCAN, // every page
+        ZONE_MAP_SCAN, // the pages that the zone maps cannot exclude
+        CLUSTERING_KEY_RANGE, // the pages between the clusterKey bounds of the predicate
+        OCTREE, // the pages an Octree index returns for the bounds of its columns
+        B_PLUS_TREE, // the pages a B+-tree index returns for the bounds of its columns
+        INDEX_UNION, // the union of the pages found for each side of an OR or XOR
+        INDEX_INTERSECTION, // the pages found for an AND that are also found for its OR and XOR parts
+        METADATA // an aggregate answered from the PageReferences, at most the pages at the ends of a clusterKey range are read
+    }
+
+    private final AccessPath accessPath;
+    private final Vector<Integer> pageIndices;
+    private final PageRows pageRows;
+    private final KeyRange keyRange;
+    private final String description; // how the pages of each part of the predicate were found
+    private final double estimatedCost; // in pages read
+
+    QueryPlan(AccessPath accessPath, Vector<Integer> pageIndices, PageRows pageRows, KeyRange keyRange, String description, double estimatedCost) {
+        this.accessPath = accessPath;
+        this.pageIndices = pageIndices;
+        this.pageRows = pageRows;
+        this.keyRange = keyRange;
+        this.description = description;
+        this.estimatedCost = estimatedCost;
+    }
+
+    public AccessPath getAccessPath() {
+        return accessPath;
+    }
+
+    public Vector<Integer> getPageIndices() {
+        return pageIndices;
+    }
+
+    PageRows getPageRows() {
+        return pageRows;
+    }
+
+    public KeyRange getKeyRange() {
+        return keyRange;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getEstimatedCost() {
+        return estimatedCost;
+    }
+
+    public String toString() {
+        return description + ", " + pageIndices.size() + " pages, estimated cost " + String.format("%.1f", estimatedCost);
+    }
+}
@@ -0,0 +1,118 @@
+package model.SQL;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+
+import java.util.Vector;
+
+// Splits SQL text into words (keywords and names), numbers, 'string' literals, symbols and ? parameters
+public class SQLLexer {
+    enum TokenType {
+        WORD,
+        NUMBER,
+        STRING,
+        SYMBOL,
+        PARAMETER,
+        END
+    }
+
+    static class Token {
+        final TokenType type;
+        final String text;
+        final int position;
+
+        Token(TokenType type, String text, int position) {
+            this.type = type;
+            this.text = text;
+            this.position = position;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.WORD && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isSymbol(String symbol) {
+            return type == TokenType.SYMBOL && text.equals(symbol);
+        }
+    }
+
+    private static final String[] SYMBOLS = {"<=", ">=", "!=", "<>", "=", "<", ">", "(", ")", ",", "*", ";", "-"};
+
+    static Vector<Token> tokenize(String sql) throws DBAppException {
+        Vector<Token> tokens = new Vector<>();
+        int i = 0;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                while (i < sql.length() && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'))
+                    i++;
+                tokens.add(new Token(TokenType.WORD, sql.substring(start, i), start));
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < sql.length() && Character.isDigit(sql.charAt(i + 1)))) {
+                while (i < sql.length() && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.'))
+                    i++;
+                tokens.add(new Token(TokenType.NUMBER, sql.substring(start, i), start));
+            } else if (c == '\'') {
+                // '' inside a literal is one quote
+                StringBuilder literal = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= sql.length())
+                        throw new DBQueryException("Unterminated string literal at position " + start);
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                            literal.append('\'');
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    literal.append(sql.charAt(i++));
+                }
+                tokens.add(new Token(TokenType.STRING, literal.toString(), start));
+            } else if (c == '?') {
+                i++;
+                tokens.add(new Token(TokenType.PARAMETER, "?", start));
+            } else {
+                String symbol = null;
+                for (String s : SYMBOLS)
+                    if (sql.startsWith(s, i)) {
+                        symbol = s;
+                        break;
+                    }
+                if (symbol == null)
+                    throw new DBQueryException("Unexpected character '" + c + "' at position " + i);
+                i += symbol.length();
+                tokens.add(new Token(TokenType.SYMBOL, symbol, start));
+            }
+        }
+        tokens.add(new Token(TokenType.END, "end of statement", sql.length()));
+        return tokens;
+    }
+
+    // The text used as the key of the StatementCache: whitespace outside of literals collapsed, trailing ; removed
+    public static String normalize(String sql) {
+        StringBuilder normalized = new StringBuilder(sql.length());
+        boolean isInLiteral = false;
+        boolean isSpace = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'')
+                isInLiteral = !isInLiteral;
+            if (!isInLiteral && Character.isWhitespace(c)) {
+                isSpace = normalized.length() > 0;
+                continue;
+            }
+            if (isSpace)
+                normalized.append(' ');
+            isSpace = false;
+            normalized.append(c);
+        }
+        while (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) == ';')
+            normalized.setLength(normalized.length() - 1);
+        return normalized.toString().trim();
+    }
+}
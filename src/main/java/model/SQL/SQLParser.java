@@ -0,0 +1,385 @@
+package model.SQL;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+import model.Aggregate.AggregateFunction;
+import model.Aggregate.Aggregation;
+import model.IndexType;
+import model.SQL.SQLLexer.Token;
+import model.SQL.SQLLexer.TokenType;
+import model.SQLTerm;
+import model.Schema.StorageLayout;
+
+import java.util.Vector;
+
+// Recursive descent parser of the supported statements:
+//   SELECT * | col, ... FROM table [WHERE col op value ((AND | OR | XOR) col op value)*]
+//          [ORDER BY col [ASC | DESC]] [LIMIT count [OFFSET count]]
+//   SELECT [col, ...] aggregate(col | *), ... FROM table [WHERE ...] [GROUP BY col, ...]
+//   INSERT INTO table (col, ...) VALUES (value, ...)
+//   UPDATE table SET col = value, ... WHERE clusteringKey = value
+//   DELETE FROM table [WHERE col = value (AND col = value)*]
+//   CREATE TABLE table (col type [PRIMARY KEY] BETWEEN min AND max, ...) [STORAGE ROW | COLUMNAR]
+//   CREATE INDEX ON table (col, ...) [USING OCTREE | BTREE]
+//   ANALYZE table
+// aggregate is one of COUNT SUM MIN MAX AVG, op is one of = != <> < <= > >=, value is a number, a 'string', DATE 'yyyy-MM-dd' or a ? parameter
+public class SQLParser {
+    private final Vector<Token> tokens;
+    private int position;
+    private int parametersCount;
+
+    private SQLParser(Vector<Token> tokens) {
+        this.tokens = tokens;
+    }
+
+    public static SQLStatement parse(String sql) throws DBAppException {
+        SQLParser parser = new SQLParser(SQLLexer.tokenize(sql));
+        SQLStatement statement = parser.parseStatement();
+
+        parser.accept(";");
+        if (parser.peek().type != TokenType.END)
+            throw parser.error("end of statement");
+        statement.parametersCount = parser.parametersCount;
+        return statement;
+    }
+
+    private SQLStatement parseStatement() throws DBAppException {
+        if (acceptKeyword("SELECT"))
+            return parseSelect();
+        if (acceptKeyword("INSERT"))
+            return parseInsert();
+        if (acceptKeyword("UPDATE"))
+            return parseUpdate();
+        if (acceptKeyword("DELETE"))
+            return parseDelete();
+        if (acceptKeyword("ANALYZE"))
+            return new SQLStatement(SQLStatement.Type.ANALYZE, parseName());
+        if (acceptKeyword("CREATE")) {
+            if (acceptKeyword("TABLE"))
+                return parseCreateTable();
+            if (acceptKeyword("INDEX"))
+                return parseCreateIndex();
+            throw error("TABLE or INDEX");
+        }
+        throw error("SELECT, INSERT, UPDATE, DELETE or CREATE");
+    }
+
+    private SQLStatement parseSelect() throws DBAppException {
+        Vector<String> colNames = null;
+        Vector<Aggregation> aggregations = new Vector<>();
+        if (!accept("*")) {
+            colNames = new Vector<>();
+            do {
+                String name = parseName();
+                if (accept("(")) {
+                    AggregateFunction function = AggregateFunction.of(name);
+                    aggregations.add(new Aggregation(function, function == AggregateFunction.COUNT && accept("*") ? null : parseName()));
+                    expect(")");
+                } else
+                    colNames.add(name);
+            } while (accept(","));
+        }
+        expectKeyword("FROM");
+        SQLStatement statement = new SQLStatement(SQLStatement.Type.SELECT, parseName());
+        statement.aggregations.addAll(aggregations);
+        if (colNames != null && !colNames.isEmpty())
+            statement.selectOptions.setColNames(colNames.toArray(new String[0]));
+
+        if (acceptKeyword("WHERE"))
+            parseConditions(statement);
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY");
+            do
+                statement.groupByColNames.add(parseName());
+            while (accept(","));
+        }
+        if (acceptKeyword("ORDER")) {
+            expectKeyword("BY");
+            String orderBy = parseName();
+            boolean isDescending = acceptKeyword("DESC");
+            if (!isDescending)
+                acceptKeyword("ASC");
+            statement.selectOptions.setOrderBy(orderBy, isDescending);
+        }
+        if (acceptKeyword("LIMIT")) {
+            statement.selectOptions.setLimit(parseCount());
+            if (acceptKeyword("OFFSET"))
+                statement.selectOptions.setOffset(parseCount());
+        }
+        return statement;
+    }
+
+    private SQLStatement parseInsert() throws DBAppException {
+        expectKeyword("INTO");
+        SQLStatement statement = new SQLStatement(SQLStatement.Type.INSERT, parseName());
+
+        expect("(");
+        do
+            statement.colNames.add(parseName());
+        while (accept(","));
+        expect(")");
+
+        expectKeyword("VALUES");
+        expect("(");
+        do
+            statement.values.add(parseValue());
+        while (accept(","));
+        expect(")");
+
+        if (statement.colNames.size() != statement.values.size())
+            throw new DBQueryException("INSERT has " + statement.colNames.size() + " columns but " + statement.values.size() + " values");
+        return statement;
+    }
+
+    private SQLStatement parseUpdate() throws DBAppException {
+        SQLStatement statement = new SQLStatement(SQLStatement.Type.UPDATE, parseName());
+
+        expectKeyword("SET");
+        do {
+            statement.colNames.add(parseName());
+            expect("=");
+            statement.values.add(parseValue());
+        } while (accept(","));
+
+        expectKeyword("WHERE");
+        parseConditions(statement);
+        return statement;
+    }
+
+    private SQLStatement parseDelete() throws DBAppException {
+        expectKeyword("FROM");
+        SQLStatement statement = new SQLStatement(SQLStatement.Type.DELETE, parseName());
+
+        if (acceptKeyword("WHERE"))
+            parseConditions(statement);
+        return statement;
+    }
+
+    private SQLStatement parseCreateTable() throws DBAppException {
+        SQLStatement statement = new SQLStatement(SQLStatement.Type.CREATE_TABLE, parseName());
+
+        expect("(");
+        do {
+            String colName = parseName();
+            statement.htblColNameType.put(colName, parseType());
+
+            boolean isClusteringKey = parsePrimaryKey();
+            expectKeyword("BETWEEN");
+            statement.htblColNameMin.put(colName, parseLiteralText());
+            expectKeyword("AND");
+            statement.htblColNameMax.put(colName, parseLiteralText());
+            isClusteringKey |= parsePrimaryKey();
+
+            if (isClusteringKey) {
+                if (statement.clusteringKey != null)
+                    throw new DBQueryException("Only one column can be the PRIMARY KEY");
+                statement.clusteringKey = colName;
+            }
+        } while (accept(","));
+        expect(")");
+
+        if (statement.clusteringKey == null)
+            throw new DBQueryException("CREATE TABLE needs a PRIMARY KEY column");
+        if (acceptKeyword("STORAGE")) {
+            if (acceptKeyword("ROW"))
+                statement.storageLayout = StorageLayout.ROW;
+            else if (acceptKeyword("COLUMNAR"))
+                statement.storageLayout = StorageLayout.COLUMNAR;
+            else
+                throw error("ROW or COLUMNAR");
+        }
+        return statement;
+    }
+
+    // index names are generated from the indexed columns, so the statement takes none
+    private SQLStatement parseCreateIndex() throws DBAppException {
+        expectKeyword("ON");
+        SQLStatement statement = new SQLStatement(SQLStatement.Type.CREATE_INDEX, parseName());
+
+        expect("(");
+        do
+            statement.colNames.add(parseName());
+        while (accept(","));
+        expect(")");
+
+        if (acceptKeyword("USING")) {
+            if (acceptKeyword("OCTREE"))
+                statement.indexType = IndexType.OCTREE;
+            else if (acceptKeyword("BTREE"))
+                statement.indexType = IndexType.B_PLUS_TREE;
+            else
+                throw error("OCTREE or BTREE");
+        }
+        return statement;
+    }
+
+    private void parseConditions(SQLStatement statement) throws DBAppException {
+        statement.conditions.add(parseCondition(statement.getTableName()));
+        while (true) {
+            String logicalOperator;
+            if (acceptKeyword("AND"))
+                logicalOperator = "AND";
+            else if (acceptKeyword("OR"))
+                logicalOperator = "OR";
+            else if (acceptKeyword("XOR"))
+                logicalOperator = "XOR";
+            else
+                return;
+
+            statement.logicalOperators.add(logicalOperator);
+            statement.conditions.add(parseCondition(statement.getTableName()));
+        }
+    }
+
+    private SQLTerm parseCondition(String tableName) throws DBAppException {
+        String colName = parseName();
+
+        Token token = next();
+        if (token.type != TokenType.SYMBOL)
+            throw error(token, "a compare operator");
+        String operator = token.text.equals("<>") ? "!=" : token.text;
+        if (!operator.matches("=|!=|<|<=|>|>="))
+            throw error(token, "a compare operator");
+
+        return new SQLTerm(tableName, colName, operator, parseValue());
+    }
+
+    private Object parseValue() throws DBAppException {
+        Token token = peek();
+        if (token.type == TokenType.PARAMETER) {
+            next();
+            return new SQLStatement.Parameter(parametersCount++);
+        }
+        if (token.type == TokenType.STRING) {
+            next();
+            return token.text;
+        }
+        if (acceptKeyword("DATE")) { // the literal is parsed once the column is known to be a date
+            token = next();
+            if (token.type != TokenType.STRING)
+                throw error(token, "a 'yyyy-MM-dd' date");
+            return token.text;
+        }
+
+        boolean isNegative = accept("-");
+        token = next();
+        if (token.type != TokenType.NUMBER)
+            throw error(token, "a value");
+        String number = isNegative ? "-" + token.text : token.text;
+        try {
+            if (number.contains("."))
+                return Double.parseDouble(number);
+            return Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            throw error(token, "a number");
+        }
+    }
+
+    private int parseCount() throws DBAppException {
+        Token token = next();
+        if (token.type != TokenType.NUMBER || token.text.contains("."))
+            throw error(token, "a count");
+        try {
+            return Integer.parseInt(token.text);
+        } catch (NumberFormatException e) {
+            throw error(token, "a count");
+        }
+    }
+
+    // min and max of CREATE TABLE are kept as text, like in the metadata file
+    private String parseLiteralText() throws DBAppException {
+        Object value = parseValue();
+        if (value instanceof SQLStatement.Parameter)
+            throw new DBQueryException("CREATE TABLE cannot take parameters");
+        return value.toString();
+    }
+
+    private String parseType() throws DBAppException {
+        Token token = next();
+        if (token.type != TokenType.WORD)
+            throw error(token, "a column type");
+
+        switch (token.text.toUpperCase()) {
+            case "INT":
+            case "INTEGER":
+                return "java.lang.Integer";
+            case "DOUBLE":
+            case "FLOAT":
+            case "DECIMAL":
+            case "REAL":
+                return "java.lang.Double";
+            case "DATE":
+                return "java.util.Date";
+            case "VARCHAR":
+            case "CHAR":
+            case "TEXT":
+            case "STRING":
+                if (accept("(")) { // the length is not enforced
+                    if (next().type != TokenType.NUMBER)
+                        throw error("a length");
+                    expect(")");
+                }
+                return "java.lang.String";
+            default:
+                throw error(token, "a column type");
+        }
+    }
+
+    private boolean parsePrimaryKey() throws DBAppException {
+        if (!acceptKeyword("PRIMARY"))
+            return false;
+        expectKeyword("KEY");
+        return true;
+    }
+
+    private String parseName() throws DBAppException {
+        Token token = next();
+        if (token.type != TokenType.WORD)
+            throw error(token, "a name");
+        return token.text;
+    }
+
+    // Helper methods
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.type != TokenType.END)
+            position++;
+        return token;
+    }
+
+    private boolean accept(String symbol) {
+        if (!peek().isSymbol(symbol))
+            return false;
+        position++;
+        return true;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (!peek().isKeyword(keyword))
+            return false;
+        position++;
+        return true;
+    }
+
+    private void expect(String symbol) throws DBAppException {
+        if (!accept(symbol))
+            throw error("'" + symbol + "'");
+    }
+
+    private void expectKeyword(String keyword) throws DBAppException {
+        if (!acceptKeyword(keyword))
+            throw error(keyword);
+    }
+
+    private DBQueryException error(String expected) {
+        return error(peek(), expected);
+    }
+
+    private DBQueryException error(Token token, String expected) {
+        return new DBQueryException("Syntax error at position " + token.position + ": expected " + expected + " but found " + token.text);
+    }
+}
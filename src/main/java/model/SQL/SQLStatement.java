@@ -0,0 +1,262 @@
+package model.SQL;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+import exceptions.DBSchemaException;
+import model.Aggregate.Aggregation;
+import model.IndexType;
+import model.Predicate.CompareOperator;
+import model.Predicate.Comparison;
+import model.Predicate.PredicateCompiler;
+import model.SQLTerm;
+import model.SelectOptions;
+import model.Schema.Column;
+import model.Schema.ColumnType;
+import model.Schema.StorageLayout;
+import model.Schema.TableSchema;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Vector;
+
+// A parsed statement. Values are literals or Parameters, the ? marks bound in order when the statement is executed.
+// plan() resolves the columns against the table schema once, after that the statement is only read,
+// so one cached instance is shared by every execution
+public class SQLStatement {
+    public enum Type {
+        SELECT,
+        INSERT,
+        UPDATE,
+        DELETE,
+        CREATE_TABLE,
+        CREATE_INDEX,
+        ANALYZE
+    }
+
+    static class Parameter {
+        final int index;
+
+        Parameter(int index) {
+            this.index = index;
+        }
+    }
+
+    private final Type type;
+    private final String tableName;
+    final Vector<String> colNames; // INSERT and CREATE INDEX columns, UPDATE SET columns
+    final Vector<Object> values; // INSERT values, UPDATE SET values
+    final Vector<SQLTerm> conditions; // WHERE conditions
+    final Vector<String> logicalOperators;
+    final SelectOptions selectOptions; // SELECT columns, ORDER BY and LIMIT
+    final Vector<Aggregation> aggregations;
+    final Vector<String> groupByColNames;
+    int parametersCount;
+
+    // CREATE TABLE
+    String clusteringKey;
+    final Hashtable<String, String> htblColNameType;
+    final Hashtable<String, String> htblColNameMin;
+    final Hashtable<String, String> htblColNameMax;
+    StorageLayout storageLayout;
+
+    // CREATE INDEX, null when it depends on the number of columns
+    IndexType indexType;
+
+    // set by plan()
+    private TableSchema schema;
+    private Comparison[] comparisons; // null for the conditions compared with a Parameter
+
+    SQLStatement(Type type, String tableName) {
+        this.type = type;
+        this.tableName = tableName;
+        this.colNames = new Vector<>();
+        this.values = new Vector<>();
+        this.conditions = new Vector<>();
+        this.logicalOperators = new Vector<>();
+        this.selectOptions = new SelectOptions();
+        this.aggregations = new Vector<>();
+        this.groupByColNames = new Vector<>();
+        this.htblColNameType = new Hashtable<>();
+        this.htblColNameMin = new Hashtable<>();
+        this.htblColNameMax = new Hashtable<>();
+        this.storageLayout = StorageLayout.ROW;
+    }
+
+    // Checks the columns and the literal values against the schema of the table and compiles the literal conditions
+    public void plan(TableSchema schema) throws DBAppException {
+        for (int i = 0; i < colNames.size(); i++) {
+            Column column = getColumn(schema, colNames.get(i));
+            if (i < values.size())
+                values.set(i, coerce(values.get(i), column));
+        }
+
+        comparisons = new Comparison[conditions.size()];
+        for (int i = 0; i < conditions.size(); i++) {
+            SQLTerm term = conditions.get(i);
+            Column column = getColumn(schema, term._strColumnName);
+            term._objValue = coerce(term._objValue, column);
+            if (type == Type.SELECT && !(term._objValue instanceof Parameter))
+                comparisons[i] = compile(term, schema);
+        }
+
+        if (type == Type.SELECT)
+            selectOptions.check(schema);
+        if (isAggregate()) {
+            for (Aggregation aggregation : aggregations)
+                aggregation.check(schema);
+            for (String colName : groupByColNames)
+                getColumn(schema, colName);
+            if (selectOptions.getColNames() != null && !groupByColNames.containsAll(Arrays.asList(selectOptions.getColNames())))
+                throw new DBQueryException("Selected columns must be in GROUP BY");
+            if (selectOptions.getOrderBy() != null || selectOptions.hasLimit())
+                throw new DBQueryException("ORDER BY and LIMIT are not supported with aggregates");
+        } else if (!groupByColNames.isEmpty())
+            throw new DBQueryException("GROUP BY needs an aggregate");
+        if (type == Type.UPDATE && (conditions.size() != 1 || !getColumn(schema, conditions.get(0)._strColumnName).isClusteringKey()
+                || !conditions.get(0)._strOperator.equals("=")))
+            throw new DBQueryException("UPDATE must select one row with clusteringKey = value");
+        if (type == Type.DELETE) {
+            HashSet<String> conditionColNames = new HashSet<>();
+            for (int i = 0; i < conditions.size(); i++) {
+                if (!conditions.get(i)._strOperator.equals("=") || (i > 0 && !logicalOperators.get(i - 1).equalsIgnoreCase("AND")))
+                    throw new DBQueryException("DELETE conditions must be column = value joined by AND");
+                if (!conditionColNames.add(getColumn(schema, conditions.get(i)._strColumnName).getName()))
+                    throw new DBQueryException("DELETE conditions must name each column once");
+            }
+        }
+
+        this.schema = schema;
+    }
+
+    public void checkParameters(Object[] parameters) throws DBAppException {
+        if (parameters.length != parametersCount)
+            throw new DBQueryException("Expected " + parametersCount + " parameters but got " + parameters.length);
+    }
+
+    // the compiled WHERE conditions of a SELECT with the parameters bound
+    public Comparison[] bindComparisons(Object[] parameters) throws DBAppException {
+        Comparison[] boundComparisons = comparisons.clone();
+        for (int i = 0; i < boundComparisons.length; i++)
+            if (boundComparisons[i] == null) {
+                SQLTerm term = conditions.get(i);
+                Object value = coerce(bind(term._objValue, parameters), schema.getColumn(term._strColumnName));
+                boundComparisons[i] = compile(new SQLTerm(tableName, term._strColumnName, term._strOperator, value), schema);
+            }
+        return boundComparisons;
+    }
+
+    // INSERT values or UPDATE SET values by column name
+    public Hashtable<String, Object> bindValues(Object[] parameters) throws DBAppException {
+        Hashtable<String, Object> htblColNameValue = new Hashtable<>();
+        for (int i = 0; i < values.size(); i++)
+            htblColNameValue.put(colNames.get(i), coerce(bind(values.get(i), parameters), schema.getColumn(colNames.get(i))));
+        return htblColNameValue;
+    }
+
+    // DELETE conditions by column name
+    public Hashtable<String, Object> bindConditionValues(Object[] parameters) throws DBAppException {
+        Hashtable<String, Object> htblColNameValue = new Hashtable<>();
+        for (SQLTerm term : conditions)
+            htblColNameValue.put(term._strColumnName, coerce(bind(term._objValue, parameters), schema.getColumn(term._strColumnName)));
+        return htblColNameValue;
+    }
+
+    // the clusteringKey value of an UPDATE, formatted like the metadata min and max
+    public String bindClusteringKeyValue(Object[] parameters) throws DBAppException {
+        SQLTerm term = conditions.get(0);
+        ColumnType keyType = schema.getColumn(term._strColumnName).getType();
+        Object value = coerce(bind(term._objValue, parameters), schema.getColumn(term._strColumnName));
+        if (!keyType.isInstance(value))
+            throw new DBSchemaException("Clustering type do not match schema");
+        return keyType.format((Comparable) value);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public int getParametersCount() {
+        return parametersCount;
+    }
+
+    public String[] getColNames() {
+        return colNames.toArray(new String[0]);
+    }
+
+    public String[] getLogicalOperators() {
+        return logicalOperators.toArray(new String[0]);
+    }
+
+    public boolean isAggregate() {
+        return !aggregations.isEmpty();
+    }
+
+    public Aggregation[] getAggregations() {
+        return aggregations.toArray(new Aggregation[0]);
+    }
+
+    public String[] getGroupByColNames() {
+        return groupByColNames.toArray(new String[0]);
+    }
+
+    public SelectOptions getSelectOptions() {
+        return selectOptions;
+    }
+
+    public String getClusteringKey() {
+        return clusteringKey;
+    }
+
+    public Hashtable<String, String> getHtblColNameType() {
+        return htblColNameType;
+    }
+
+    public Hashtable<String, String> getHtblColNameMin() {
+        return htblColNameMin;
+    }
+
+    public Hashtable<String, String> getHtblColNameMax() {
+        return htblColNameMax;
+    }
+
+    public StorageLayout getStorageLayout() {
+        return storageLayout;
+    }
+
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    // Helper methods
+    private static Column getColumn(TableSchema schema, String colName) throws DBAppException {
+        Column column = schema.getColumn(colName);
+        if (column == null)
+            throw new DBSchemaException("Column " + colName + " does not exist");
+        return column;
+    }
+
+    private static Comparison compile(SQLTerm term, TableSchema schema) throws DBAppException {
+        Column column = schema.getColumn(term._strColumnName);
+        if (!column.getType().isInstance(term._objValue) || !column.isInRange(term._objValue))
+            throw new DBSchemaException("Columns metadata do not match table schema");
+        return PredicateCompiler.compile(term, schema);
+    }
+
+    private static Object bind(Object value, Object[] parameters) {
+        return value instanceof Parameter ? parameters[((Parameter) value).index] : value;
+    }
+
+    // integer literals are accepted for double columns and 'yyyy-MM-dd' literals for date columns
+    private static Object coerce(Object value, Column column) throws DBAppException {
+        if (column.getType() == ColumnType.DOUBLE && value instanceof Integer)
+            return ((Integer) value).doubleValue();
+        if (column.getType() == ColumnType.DATE && value instanceof String)
+            return column.getType().parse((String) value);
+        return value;
+    }
+}
@@ -0,0 +1,30 @@
+package model.SQL;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Parsed and planned statements by their normalized text, evicted in LRU order.
+// Cleared whenever a table or an index is created, so no statement outlives the schema it was planned with
+public class StatementCache {
+    private static final int MAX_SIZE = 256;
+
+    // accessOrder = true, so the eldest entry is the least recently used
+    private static final LinkedHashMap<String, SQLStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SQLStatement> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    public static synchronized SQLStatement get(String normalizedSQL) {
+        return statements.get(normalizedSQL);
+    }
+
+    public static synchronized void put(String normalizedSQL, SQLStatement statement) {
+        statements.put(normalizedSQL, statement);
+    }
+
+    public static synchronized void clear() {
+        statements.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package model.Schema;
+
+// Immutable metadata of one column, min and max are parsed once when the schema is loaded
+public class Column {
+    private final String name;
+    private final String typeName; // as written in the metadata file
+    private final ColumnType type;
+    private final boolean isClusteringKey;
+    private final String indexName;
+    private final String indexType;
+    private final Comparable min;
+    private final Comparable max;
+    private final int position; // position of the column in the sorted column names, used by RecordLayout
+
+    public Column(String name, String typeName, ColumnType type, boolean isClusteringKey, String indexName, String indexType,
+                  Comparable min, Comparable max, int position) {
+        this.name = name;
+        this.typeName = typeName;
+        this.type = type;
+        this.isClusteringKey = isClusteringKey;
+        this.indexName = indexName;
+        this.indexType = indexType;
+        this.min = min;
+        this.max = max;
+        this.position = position;
+    }
+
+    public Column withIndex(String indexName, String indexType) {
+        return new Column(name, typeName, type, isClusteringKey, indexName, indexType, min, max, position);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    public boolean isClusteringKey() {
+        return isClusteringKey;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    public String getIndexType() {
+        return indexType;
+    }
+
+    public boolean isIndexed() {
+        return indexName != null;
+    }
+
+    public Comparable getMin() {
+        return min;
+    }
+
+    public Comparable getMax() {
+        return max;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean isInRange(Object value) {
+        return min.compareTo(value) <= 0 && max.compareTo(value) >= 0;
+    }
+}
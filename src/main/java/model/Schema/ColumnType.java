@@ -0,0 +1,65 @@
+package model.Schema;
+
+import exceptions.DBAppException;
+import exceptions.DBSchemaException;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+public enum ColumnType {
+    INTEGER(Integer.class),
+    DOUBLE(Double.class),
+    STRING(String.class),
+    DATE(Date.class);
+
+    private static final String DATE_FORMAT = "yyyy-MM-dd";
+
+    private final Class<?> javaClass;
+
+    ColumnType(Class<?> javaClass) {
+        this.javaClass = javaClass;
+    }
+
+    // type is the type name stored in the metadata, e.g. "java.lang.Integer" or "java.lang.double"
+    public static ColumnType of(String type) throws DBAppException {
+        type = type.toLowerCase();
+        if (type.contains("integer"))
+            return INTEGER;
+        if (type.contains("double"))
+            return DOUBLE;
+        if (type.contains("string"))
+            return STRING;
+        if (type.contains("date"))
+            return DATE;
+        throw new DBSchemaException("Invalid data type");
+    }
+
+    public boolean isInstance(Object value) {
+        return javaClass.isInstance(value);
+    }
+
+    public Comparable parse(String value) throws DBAppException {
+        switch (this) {
+            case INTEGER:
+                return Integer.parseInt(value);
+            case DOUBLE:
+                return Double.parseDouble(value);
+            case DATE:
+                try {
+                    return new SimpleDateFormat(DATE_FORMAT).parse(value);
+                } catch (ParseException e) {
+                    throw new DBSchemaException("Invalid date format");
+                }
+            default: // STRING
+                return value;
+        }
+    }
+
+    // inverse of parse, used when writing values back to the metadata file
+    public String format(Comparable value) {
+        if (this == DATE)
+            return new SimpleDateFormat(DATE_FORMAT).format((Date) value);
+        return value.toString();
+    }
+}
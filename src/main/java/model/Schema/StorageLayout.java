@@ -0,0 +1,7 @@
+package model.Schema;
+
+// How the tuples of a table are laid out inside its page files, chosen when the table is created
+public enum StorageLayout {
+    ROW,     // one record after the other, see RecordLayout
+    COLUMNAR // PAX: each column stored contiguously, a scan reads only the columns it compares
+}
@@ -0,0 +1,89 @@
+package model.Schema;
+
+import exceptions.DBAppException;
+import utils.RecordLayout;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Set;
+
+// Immutable schema of a table, built once by the Catalog from the table metadata file
+public class TableSchema {
+    private final String tableName;
+    private final Column[] columns; // sorted by name
+    private final Hashtable<String, Column> htblColNameColumn;
+    private final Set<String> colNames;
+    private final Column clusteringKey;
+    private final RecordLayout recordLayout;
+    private final StorageLayout storageLayout;
+
+    public TableSchema(String tableName, Column[] columns, StorageLayout storageLayout) throws DBAppException {
+        this.tableName = tableName;
+        this.storageLayout = storageLayout;
+        this.columns = columns.clone();
+        this.htblColNameColumn = new Hashtable<>();
+
+        Column clusteringKey = null;
+        for (Column column : columns) {
+            htblColNameColumn.put(column.getName(), column);
+            if (column.isClusteringKey())
+                clusteringKey = column;
+        }
+        this.clusteringKey = clusteringKey;
+        this.colNames = Collections.unmodifiableSet(new HashSet<>(htblColNameColumn.keySet()));
+        this.recordLayout = new RecordLayout(this);
+    }
+
+    // returns a copy of this schema where colNames are indexed by indexName
+    public TableSchema withIndex(String[] colNames, String indexName, String indexType) throws DBAppException {
+        List<String> indexedColNames = Arrays.asList(colNames);
+        Column[] newColumns = new Column[columns.length];
+        for (int i = 0; i < columns.length; i++)
+            newColumns[i] = indexedColNames.contains(columns[i].getName()) ? columns[i].withIndex(indexName, indexType) : columns[i];
+
+        return new TableSchema(tableName, newColumns, storageLayout);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    // returns null if the column does not exist
+    public Column getColumn(String colName) {
+        return htblColNameColumn.get(colName);
+    }
+
+    public Column getColumn(int position) {
+        return columns[position];
+    }
+
+    public int getColumnsCount() {
+        return columns.length;
+    }
+
+    public Set<String> getColNames() {
+        return colNames;
+    }
+
+    public boolean hasColumns(String[] colNames) {
+        for (String colName : colNames)
+            if (!htblColNameColumn.containsKey(colName))
+                return false;
+        return true;
+    }
+
+    public Column getClusteringKey() {
+        return clusteringKey;
+    }
+
+    public RecordLayout getRecordLayout() {
+        return recordLayout;
+    }
+
+    public StorageLayout getStorageLayout() {
+        return storageLayout;
+    }
+}
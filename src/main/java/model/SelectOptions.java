@@ -0,0 +1,93 @@
+package model;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+import exceptions.DBSchemaException;
+import model.Schema.TableSchema;
+
+import java.util.Comparator;
+
+// What a select returns of the matching tuples: the projected columns (every column when colNames is null),
+// their order (clusterKey order when orderBy is null) and the window of that order starting at offset, at most limit tuples
+public class SelectOptions {
+    public static final int NO_LIMIT = -1;
+
+    private String[] colNames;
+    private String orderBy;
+    private boolean isDescending;
+    private int limit = NO_LIMIT;
+    private int offset;
+
+    public SelectOptions() {
+    }
+
+    public SelectOptions(String[] colNames, String orderBy, boolean isDescending, int limit, int offset) {
+        this.colNames = colNames;
+        this.orderBy = orderBy;
+        this.isDescending = isDescending;
+        this.limit = limit;
+        this.offset = offset;
+    }
+
+    public void check(TableSchema schema) throws DBAppException {
+        if (colNames != null) {
+            if (colNames.length == 0)
+                throw new DBQueryException("No columns selected");
+            for (String colName : colNames)
+                if (schema.getColumn(colName) == null)
+                    throw new DBSchemaException("Column " + colName + " does not exist");
+        }
+        if (orderBy != null && schema.getColumn(orderBy) == null)
+            throw new DBSchemaException("Column " + orderBy + " does not exist");
+        if (limit < NO_LIMIT || offset < 0)
+            throw new DBQueryException("LIMIT and OFFSET cannot be negative");
+    }
+
+    // ascending puts nulls last and descending puts them first
+    Comparator<Tuple> getComparator(String clusterKeyName) {
+        Comparator<Tuple> comparator = Comparator.comparing(tuple -> (Comparable) tuple.getColValue(orderBy), Comparator.nullsLast(Comparator.naturalOrder()));
+        comparator = comparator.thenComparing(tuple -> (Comparable) tuple.getClusterKeyValue());
+        return isDescending ? comparator.reversed() : comparator;
+    }
+
+    public String[] getColNames() {
+        return colNames;
+    }
+
+    public void setColNames(String[] colNames) {
+        this.colNames = colNames;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public boolean isDescending() {
+        return isDescending;
+    }
+
+    public void setOrderBy(String orderBy, boolean isDescending) {
+        this.orderBy = orderBy;
+        this.isDescending = isDescending;
+    }
+
+    public boolean hasLimit() {
+        return limit != NO_LIMIT;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+}
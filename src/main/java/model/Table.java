@@ -1,31 +1,57 @@
 package model;
 
+import exceptions.DBAlreadyExistsException;
 import exceptions.DBAppException;
 import exceptions.DBNotFoundException;
 import exceptions.DBQueryException;
+import model.Aggregate.AggregateFunction;
+import model.Aggregate.Aggregation;
+import model.Aggregate.HashAggregate;
 import model.Page.Page;
 import model.Page.PageReference;
+import model.Page.ZoneMap;
+import model.Predicate.CompareOperator;
+import model.Predicate.Comparison;
+import model.Predicate.KeyRange;
+import model.Predicate.LogicalOperator;
+import model.Predicate.LogicalPredicate;
+import model.Predicate.Predicate;
+import model.Predicate.PredicateCompiler;
+import model.Schema.StorageLayout;
+import model.Schema.TableSchema;
+import utils.BufferPool;
+import utils.Catalog;
+import utils.DBConfig;
+import utils.ExternalSort;
+import utils.PageView;
+import utils.ScanExecutor;
 import utils.SerializationManager;
 import utils.Utils;
 
-import java.io.File;
-import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.function.ToIntFunction;
 
 public class Table implements Serializable {
     private final Vector<PageReference> pagesReference;
-    private final Vector<Index> indices;
+    private final Vector<String> indicesNames;
+    private transient Vector<Index> indices; // loaded from Indexes/ when first needed
     private final String tableName;
     private final String clusterKeyName;
     private int size;
+    private TableStatistics statistics; // null until analyze()
+    private int nextPageIndex; // page files are never reused, so a new page cannot overwrite a live one
+    private transient Hashtable<Integer, PageReference> pagesById; // indices store pageIndex, rebuilt when pages change
 
     public Table(String tableName, String clusterKeyName) {
         this.pagesReference = new Vector<>();
+        this.indicesNames = new Vector<>();
         this.indices = new Vector<>();
         this.tableName = tableName;
         this.clusterKeyName = clusterKeyName;
         this.size = 0;
+        this.nextPageIndex = 0;
 
         String pagesFolder = Utils.getPageFolderPath(tableName);
         String IndexFolder = Utils.getIndexFolderPath(tableName);
@@ -33,9 +59,10 @@ public class Table implements Serializable {
         Utils.createFolder(IndexFolder);
     }
 
+    // Only the page of the tuple is changed, it is split in two when it overflows
     public void insertTuple(Tuple tuple) throws DBAppException {
-        if (this.getPagesCount() == 0 || this.isFull()) // If no pages exist OR table is full
-            addPage(new Page(this.tableName, getPagesCount()));
+        if (this.getPagesCount() == 0) // If no pages exist
+            addPage(0, new Page(this.tableName, nextPageIndex++));
 
         Object clusterKeyValue = tuple.getClusterKeyValue();
         int index = Utils.binarySearch(this.pagesReference, clusterKeyValue);
@@ -43,93 +70,502 @@ public class Table implements Serializable {
 
         PageReference pageRef = getPageReference(pageIndex);
         Page page = SerializationManager.deserializePage(getTableName(), pageRef);
+        try {
+            page.insertTuple(tuple);
+        } catch (DBAppException e) {
+            SerializationManager.releasePage(page);
+            throw e;
+        }
 
-        page.insertTuple(tuple);
+        this.insertIntoIndices(tuple, pageRef.getPageIndex());
 
-        this.insertIntoIndices(tuple, pageIndex);
+        if (page.isOverflow())
+            splitPage(pageIndex, page, tuple);
 
         SerializationManager.serializePage(page);
 
         this.size++;
-        arrangePages();
+    }
+
+    // Rewrites the table as fully packed pages holding the merge of its tuples with newTuples (sorted by clusterKey),
+    // then rebuilds every index in one pass. The table is unchanged if a clusterKey already exists.
+    public void bulkInsertTuples(ExternalSort newTuples) throws DBAppException {
+        int maxRowsCount = DBConfig.get().getMaxRowsCountInPage();
+        Vector<PageReference> newPagesReference = new Vector<>();
+        Vector<Vector<Object>> indicesEntries = new Vector<>();
+        for (int i = 0; i < getIndices().size(); i++)
+            indicesEntries.add(new Vector<>());
+
+        int oldPageIndex = 0, oldSlot = 0;
+        Page oldPage = null;
+        Tuple oldTuple = null, newTuple = newTuples.next(), lastTuple = null;
+        Page page = null;
+        int newSize = 0;
+        try {
+            while (true) {
+                if (oldTuple == null && oldPageIndex < getPagesCount()) { // read the existing pages in order
+                    if (oldPage == null)
+                        oldPage = SerializationManager.deserializePage(getTableName(), getPageReference(oldPageIndex));
+                    oldTuple = oldPage.getTuple(oldSlot++);
+                    if (oldSlot == oldPage.getSize()) {
+                        SerializationManager.releasePage(oldPage);
+                        oldPage = null;
+                        oldPageIndex++;
+                        oldSlot = 0;
+                    }
+                }
+                if (oldTuple == null && newTuple == null)
+                    break;
+
+                Tuple tuple;
+                if (newTuple == null || oldTuple != null && oldTuple.compareTo(newTuple) <= 0) {
+                    tuple = oldTuple;
+                    oldTuple = null;
+                } else {
+                    tuple = newTuple;
+                    newTuple = newTuples.next();
+                }
+                if (lastTuple != null && tuple.compareTo(lastTuple) == 0) // in the table or twice in the new tuples
+                    throw new DBAlreadyExistsException("Tuple already exists");
+                lastTuple = tuple;
+
+                if (page == null || page.getSize() == maxRowsCount) {
+                    if (page != null)
+                        SerializationManager.writeNewPage(page);
+                    page = new Page(this.tableName, nextPageIndex++);
+                    newPagesReference.add(page.getPageReference());
+                }
+                page.insertTuple(tuple);
+                newSize++;
+
+                for (int i = 0; i < indicesEntries.size(); i++)
+                    indicesEntries.get(i).add(getIndices().get(i).getEntry(tuple, page.getPageIndex()));
+            }
+            if (page != null)
+                SerializationManager.writeNewPage(page);
+        } catch (DBAppException e) {
+            if (oldPage != null)
+                SerializationManager.releasePage(oldPage);
+            for (PageReference pageRef : newPagesReference) // the new pages are not referenced yet, drop their files
+                SerializationManager.deletePage(this.tableName, pageRef.getPageIndex());
+            throw e;
+        }
+
+        for (PageReference pageRef : this.pagesReference)
+            SerializationManager.deletePage(this.tableName, pageRef.getPageIndex());
+        this.pagesReference.clear();
+        this.pagesReference.addAll(newPagesReference);
+        this.pagesById = null;
+        this.size = newSize;
+
+        for (int i = 0; i < indicesEntries.size(); i++)
+            getIndices().get(i).bulkLoad(indicesEntries.get(i));
     }
 
     public void deleteTuples(Hashtable<String, Object> htblColNameValue) throws DBAppException {
-        // Conditions are ANDed together
-        String[] logicalOperators = new String[htblColNameValue.size()];
-        Arrays.fill(logicalOperators, "AND");
+        Predicate predicate = PredicateCompiler.compileEquals(htblColNameValue, Catalog.getSchema(getTableName()));
+        QueryPlan plan = plan(predicate);
 
-        // compareOperator is always "="
-        String[] compareOperators = new String[htblColNameValue.size()];
-        Arrays.fill(compareOperators, "=");
+        // the pages are searched first, in parallel when configured, only the pages with matches are changed
+        Vector<Integer> pageIndices = plan.getPageIndices();
+        Vector<Vector<Tuple>> matches = scanPages(pageIndices, predicate, plan.getKeyRange(), plan.getPageRows(), null, false, Integer.MAX_VALUE);
 
-        Vector<PageReference> newPagesReference = new Vector<>();
-        if (this.canUseIndex(htblColNameValue.keySet().toArray(new String[0]), logicalOperators)) {
-            Index index = this.getIndex(htblColNameValue.keySet().toArray(new String[0]));
-
-            HashSet<Integer> pages = index.getPagesIndex(htblColNameValue);
-            for (Integer pageIndex : pages)
-                newPagesReference.add(this.pagesReference.get(pageIndex));
-        } else
-            newPagesReference = this.pagesReference;
-
-        Page page;
-        for (PageReference pageRef : newPagesReference) {
-            page = SerializationManager.deserializePage(getTableName(), pageRef);
-            int pageIndex = page.getPageIndex();
-            for (int i = 0; i < page.getSize(); i++) {
-                Tuple tuple = page.getTuple(i);
-
-                Boolean[] conditionsBool = tuple.AreConditionsSatisfied(htblColNameValue, compareOperators);
-
-                if (tuple.isTermSatisfied(conditionsBool, logicalOperators)) {
-                    page.deleteTuple(tuple);
-                    this.removeFromIndex(tuple, pageIndex);
-                    this.size--;
-                }
+        Vector<PageReference> changedPagesReference = new Vector<>();
+        for (int i = 0; i < pageIndices.size(); i++) {
+            if (matches.get(i).isEmpty())
+                continue;
+
+            PageReference pageRef = getPageReferenceById(pageIndices.get(i));
+            Page page = SerializationManager.deserializePage(getTableName(), pageRef);
+            for (Tuple tuple : matches.get(i)) {
+                page.deleteTuple(tuple);
+                this.removeFromIndex(tuple, pageRef.getPageIndex());
+                this.size--;
             }
             SerializationManager.serializePage(page);
+            changedPagesReference.add(pageRef);
         }
 
-        arrangePages();
+        // only the pages that lost tuples and their neighbours are rearranged
+        for (PageReference pageRef : changedPagesReference) {
+            int pageIndex = this.pagesReference.indexOf(pageRef);
+            if (pageIndex >= 0)
+                mergePage(pageIndex);
+        }
     }
 
-    public Iterator selectTuples(Hashtable<String, Object> min, Hashtable<String, Object> max, Map<String, Object> htblColNameValue, String[] compareOperators, String[] logicalOperators) throws DBAppException {
-        Vector<PageReference> newPagesReference = new Vector<>();
-        boolean flag = false;
-        for (String compareOperator : compareOperators)
-            if (!compareOperator.equals("!=")) {
-                flag = true;
-                break;
+    // Returns a cursor over the matching tuples, the candidate pages are only read while the cursor is consumed.
+    // lock is held while each page is read, it must be the lock the caller holds when changing the table
+    public TupleCursor selectTuples(Predicate predicate, SelectOptions options, Object lock) throws DBAppException {
+        return new TupleCursor(this, plan(predicate), predicate, options, lock);
+    }
+
+    // Chooses how to find the pages that can hold tuples satisfying the predicate, costs are counted in pages read.
+    // Only the chosen pages are read, in clusterKey order
+    public QueryPlan plan(Predicate predicate) throws DBAppException {
+        CandidatePages candidates = getCandidatePages(predicate);
+        PageRows pageRows = candidates.getRows();
+        Vector<Integer> pageIndices = new Vector<>();
+        for (PageReference pageRef : this.pagesReference)
+            if (pageRows.getPageIndices().contains(pageRef.getPageIndex()))
+                pageIndices.add(pageRef.getPageIndex());
+
+        KeyRange keyRange = predicate.getRange(getClusterKeyName());
+        return new QueryPlan(candidates.getAccessPath(), pageIndices, pageRows, keyRange, candidates.toString(), candidates.getCost());
+    }
+
+    // The sides of an OR or XOR are planned on their own and their pages united when that is cheaper than planning
+    // the whole part with the union of their ranges. An AND is planned with the intersection of the ranges of its sides,
+    // and its pages are intersected with the pages of the OR and XOR parts below it when those are cheaper
+    private CandidatePages getCandidatePages(Predicate predicate) throws DBAppException {
+        CandidatePages candidates = getConjunctionPages(predicate);
+        if (!hasDisjunction(predicate))
+            return candidates;
+
+        LogicalPredicate logicalPredicate = (LogicalPredicate) predicate;
+        if (logicalPredicate.getOperator() != LogicalOperator.AND) {
+            CandidatePages union = CandidatePages.union(getCandidatePages(logicalPredicate.getLeft()), getCandidatePages(logicalPredicate.getRight()));
+            return union.getCost() < candidates.getCost() ? union : candidates;
+        }
+        for (Predicate side : new Predicate[]{logicalPredicate.getLeft(), logicalPredicate.getRight()}) {
+            if (!hasDisjunction(side))
+                continue;
+            CandidatePages sideCandidates = getCandidatePages(side);
+            if (sideCandidates.getCost() < candidates.getCost())
+                candidates = CandidatePages.intersect(candidates, sideCandidates);
+        }
+        return candidates;
+    }
+
+    private static boolean hasDisjunction(Predicate predicate) {
+        if (!(predicate instanceof LogicalPredicate))
+            return false;
+        LogicalPredicate logicalPredicate = (LogicalPredicate) predicate;
+        return logicalPredicate.getOperator() != LogicalOperator.AND
+                || hasDisjunction(logicalPredicate.getLeft()) || hasDisjunction(logicalPredicate.getRight());
+    }
+
+    // The clusterKey range and the zone maps cost nothing to apply, so they always narrow the scanned pages.
+    // An index is used on top of them when the pages and nodes it is estimated to read are fewer than the scanned pages
+    private CandidatePages getConjunctionPages(Predicate predicate) throws DBAppException {
+        KeyRange keyRange = predicate.getRange(getClusterKeyName());
+        Hashtable<String, KeyRange> colRanges = getColRanges(predicate);
+
+        Set<Integer> pages = new HashSet<>();
+        if (!keyRange.isEmpty()) {
+            int from = Utils.lowerBound(getPagesCount(), i -> keyRange.isBelow(getPageReference(i).getMax()));
+            int to = Utils.lowerBound(getPagesCount(), i -> !keyRange.isAbove(getPageReference(i).getMin()));
+            for (int i = from; i < to; i++)
+                if (getPageReference(i).mayMatch(colRanges))
+                    pages.add(getPageReference(i).getPageIndex());
+        }
+        QueryPlan.AccessPath accessPath = QueryPlan.AccessPath.FULL_SCAN;
+        if (!keyRange.isAll())
+            accessPath = QueryPlan.AccessPath.CLUSTERING_KEY_RANGE;
+        else if (pages.size() < getPagesCount())
+            accessPath = QueryPlan.AccessPath.ZONE_MAP_SCAN;
+
+        Index bestIndex = null;
+        double bestCost = pages.size();
+        for (Index index : getIndices()) {
+            double cost = estimateIndexCost(index, colRanges);
+            if (cost < bestCost) {
+                bestIndex = index;
+                bestCost = cost;
+            }
+        }
+        if (bestIndex == null)
+            return new CandidatePages(accessPath, accessPath.toString(), bestCost, () -> PageRows.of(pages));
+
+        Index index = bestIndex;
+        QueryPlan.AccessPath indexPath = index.getType() == IndexType.OCTREE ? QueryPlan.AccessPath.OCTREE : QueryPlan.AccessPath.B_PLUS_TREE;
+        return new CandidatePages(indexPath, indexPath + " " + index.getIndexName(), bestCost, () -> {
+            TableSchema schema = Catalog.getSchema(getTableName());
+            Hashtable<String, Object> min = new Hashtable<>();
+            Hashtable<String, Object> max = new Hashtable<>();
+            for (String colName : index.getColNames()) {
+                KeyRange range = colRanges.getOrDefault(colName, KeyRange.ALL);
+                min.put(colName, range.getMin() == null ? schema.getColumn(colName).getMin() : range.getMin());
+                max.put(colName, range.getMax() == null ? schema.getColumn(colName).getMax() : range.getMax());
             }
+            PageRows pageRows = PageRows.of(pages);
+            pageRows.retainAll(index.getRows(min, max));
+            return pageRows;
+        });
+    }
+
+    // One result tuple per group. Without GROUP BY the aggregates the page metadata answers read no page: COUNT(*) and
+    // COUNT, MIN and MAX of a column over the whole table come from the page sizes, the zone maps and the clusterKey bounds
+    // of the first and last PageReference, and COUNT(*) of a clusterKey range only scans the pages at its ends.
+    // Otherwise the candidate pages are streamed into a HashAggregate, reading only the aggregated columns
+    public TupleCursor aggregate(Predicate predicate, String[] groupByColNames, Aggregation[] aggregations) throws DBAppException {
+        Vector<Tuple> result = new Vector<>();
+        if (groupByColNames.length == 0 && isAnsweredByMetadata(predicate, aggregations)) {
+            Hashtable<String, Object> htblColNameValue = new Hashtable<>();
+            for (Aggregation aggregation : aggregations) {
+                Object value = aggregateMetadata(predicate, aggregation);
+                if (value != null)
+                    htblColNameValue.put(aggregation.getName(), value);
+            }
+            result.add(new Tuple(getClusterKeyName(), htblColNameValue));
+            KeyRange keyRange = predicate.getRange(getClusterKeyName());
+            return new TupleCursor(new QueryPlan(QueryPlan.AccessPath.METADATA, new Vector<>(), new PageRows(), keyRange, "METADATA", 0), result);
+        }
+
+        HashAggregate hashAggregate = new HashAggregate(groupByColNames, aggregations);
+        QueryPlan plan = plan(predicate);
+        Vector<Integer> pageIndices = plan.getPageIndices();
+        int batchSize = DBConfig.get().getParallelism();
+        for (int i = 0; i < pageIndices.size(); i += batchSize) {
+            List<Integer> batch = pageIndices.subList(i, Math.min(pageIndices.size(), i + batchSize));
+            for (Vector<Tuple> pageTuples : scanPages(batch, predicate, plan.getKeyRange(), plan.getPageRows(), hashAggregate.getColNames(), false, Integer.MAX_VALUE))
+                for (Tuple tuple : pageTuples)
+                    hashAggregate.add(tuple);
+        }
+        return new TupleCursor(plan, hashAggregate.getResult(getClusterKeyName()));
+    }
+
+    private boolean isAnsweredByMetadata(Predicate predicate, Aggregation[] aggregations) {
+        for (Aggregation aggregation : aggregations) {
+            String colName = aggregation.getColName();
+            if (colName == null) { // COUNT(*)
+                if (!isClusterKeyRange(predicate))
+                    return false;
+                continue;
+            }
+            if (predicate != Predicate.TRUE || aggregation.getFunction() == AggregateFunction.SUM || aggregation.getFunction() == AggregateFunction.AVG)
+                return false;
+            if (!colName.equals(getClusterKeyName()))
+                for (PageReference pageRef : this.pagesReference)
+                    if (pageRef.getZoneMap() == null)
+                        return false;
+        }
+        return true;
+    }
+
+    private Object aggregateMetadata(Predicate predicate, Aggregation aggregation) throws DBAppException {
+        String colName = aggregation.getColName();
+        if (colName == null)
+            return predicate == Predicate.TRUE ? getSize() : countClusterKeyRange(predicate);
+        if (colName.equals(getClusterKeyName()))
+            switch (aggregation.getFunction()) {
+                case COUNT:
+                    return getSize();
+                case MIN:
+                    return getPagesCount() == 0 ? null : getPageReference(0).getMin();
+                default: // MAX
+                    return getPagesCount() == 0 ? null : getPageReference(getPagesCount() - 1).getMax();
+            }
+
+        int count = 0;
+        Comparable min = null, max = null;
+        for (PageReference pageRef : this.pagesReference) {
+            ZoneMap zoneMap = pageRef.getZoneMap();
+            count += pageRef.getSize() - zoneMap.getNullsCount(colName);
+            Comparable pageMin = zoneMap.getMin(colName);
+            Comparable pageMax = zoneMap.getMax(colName);
+            if (pageMin != null && (min == null || pageMin.compareTo(min) < 0))
+                min = pageMin;
+            if (pageMax != null && (max == null || pageMax.compareTo(max) > 0))
+                max = pageMax;
+        }
+        switch (aggregation.getFunction()) {
+            case COUNT:
+                return count;
+            case MIN:
+                return min;
+            default: // MAX
+                return max;
+        }
+    }
 
-        if (this.canUseIndex(htblColNameValue.keySet().toArray(new String[0]), logicalOperators) && !flag) {
-            Index index = this.getIndex(htblColNameValue.keySet().toArray(new String[0]));
+    // the pages inside the range are counted by their size, only the pages that cross its bounds are scanned
+    private int countClusterKeyRange(Predicate predicate) throws DBAppException {
+        KeyRange keyRange = predicate.getRange(getClusterKeyName());
+        if (keyRange.isEmpty())
+            return 0;
+
+        int count = 0;
+        int from = Utils.lowerBound(getPagesCount(), i -> keyRange.isBelow(getPageReference(i).getMax()));
+        int to = Utils.lowerBound(getPagesCount(), i -> !keyRange.isAbove(getPageReference(i).getMin()));
+        for (int i = from; i < to; i++) {
+            PageReference pageRef = getPageReference(i);
+            if (keyRange.contains(pageRef.getMin()) && keyRange.contains(pageRef.getMax()))
+                count += pageRef.getSize();
+            else
+                count += scanPages(List.of(pageRef.getPageIndex()), predicate, keyRange, null, new String[0], false, Integer.MAX_VALUE).get(0).size();
+        }
+        return count;
+    }
 
-            HashSet<Integer> pages = index.getPagesIndex(min, max);
-            for (Integer pageIndex : pages)
-                newPagesReference.add(this.pagesReference.get(pageIndex));
-        } else
-            newPagesReference = this.pagesReference;
+    // true if the predicate is exactly its clusterKey range: no condition at all, or clusterKey comparisons joined by AND
+    private boolean isClusterKeyRange(Predicate predicate) {
+        if (predicate == Predicate.TRUE)
+            return true;
+        if (predicate instanceof Comparison) {
+            Comparison comparison = (Comparison) predicate;
+            return comparison.getColName().equals(getClusterKeyName()) && comparison.getOperator() != CompareOperator.NOT_EQUAL;
+        }
+        if (predicate instanceof LogicalPredicate) {
+            LogicalPredicate logicalPredicate = (LogicalPredicate) predicate;
+            return logicalPredicate.getOperator() == LogicalOperator.AND
+                    && isClusterKeyRange(logicalPredicate.getLeft()) && isClusterKeyRange(logicalPredicate.getRight());
+        }
+        return false;
+    }
+
+    // Reads every tuple once to collect the statistics used by plan()
+    public void analyze() throws DBAppException {
+        Hashtable<String, ColumnStatistics.Collector> collectors = new Hashtable<>();
+        for (String colName : Catalog.getSchema(getTableName()).getColNames())
+            collectors.put(colName, new ColumnStatistics.Collector());
+
+        for (PageReference pageRef : this.pagesReference) {
+            Page page = SerializationManager.deserializePage(getTableName(), pageRef);
+            for (int i = 0; i < page.getSize(); i++)
+                for (Map.Entry<String, ColumnStatistics.Collector> entry : collectors.entrySet())
+                    entry.getValue().add(page.getTuple(i).getColValue(entry.getKey()));
+            SerializationManager.releasePage(page);
+        }
 
-        List<Tuple> tuples = new Vector<>();
-        Page page;
-        for (PageReference pageRef : newPagesReference) {
-            page = SerializationManager.deserializePage(getTableName(), pageRef);
-            for (int j = 0; j < page.getSize(); j++) {
-                Tuple tuple = page.getTuple(j);
+        Hashtable<String, ColumnStatistics> columns = new Hashtable<>();
+        for (Map.Entry<String, ColumnStatistics.Collector> entry : collectors.entrySet())
+            columns.put(entry.getKey(), entry.getValue().build());
+        this.statistics = new TableStatistics(this.size, getPagesCount(), columns);
+    }
 
-                Boolean[] conditionsBool = tuple.AreConditionsSatisfied(htblColNameValue, compareOperators);
+    // Pages read through the index: the pages holding the estimated matching rows (Cardenas' formula)
+    // and the nodes of the index read to find them
+    private double estimateIndexCost(Index index, Hashtable<String, KeyRange> colRanges) {
+        double selectivity = 1;
+        double leadingSelectivity = 1;
+        boolean isBounded = false;
+        String[] colNames = index.getColNames();
+        for (int i = 0; i < colNames.length; i++) {
+            KeyRange range = colRanges.get(colNames[i]);
+            if (range == null)
+                continue;
+            isBounded = true;
+            double colSelectivity = getSelectivity(colNames[i], range);
+            selectivity *= colSelectivity;
+            if (i == 0)
+                leadingSelectivity = colSelectivity;
+        }
+        if (!isBounded || getPagesCount() == 0)
+            return Double.MAX_VALUE;
 
-                if (tuple.isTermSatisfied(conditionsBool, logicalOperators))
-                    tuples.add(tuple);
+        double rows = this.size * selectivity;
+        double pages = getPagesCount() * (1 - Math.pow(1 - 1.0 / getPagesCount(), rows));
+        return pages + index.estimateNodesRead(this.size, rows, this.size * leadingSelectivity);
+    }
+
+    // Without statistics an equality keeps a tenth of the rows and a range a third
+    private double getSelectivity(String colName, KeyRange range) {
+        ColumnStatistics colStatistics = this.statistics == null ? null : this.statistics.getColumn(colName);
+        if (colStatistics != null)
+            return colStatistics.getSelectivity(range);
+        if (range.isEmpty())
+            return 0;
+        if (range.getMin() != null && range.getMin().equals(range.getMax()))
+            return 0.1;
+        return 1.0 / 3;
+    }
+
+    // The ranges of the columns that the predicate bounds, used to skip pages by their zone maps
+    private Hashtable<String, KeyRange> getColRanges(Predicate predicate) throws DBAppException {
+        Hashtable<String, KeyRange> colRanges = new Hashtable<>();
+        for (String colName : Catalog.getSchema(getTableName()).getColNames()) {
+            KeyRange range = predicate.getRange(colName);
+            if (!range.isAll())
+                colRanges.put(colName, range);
+        }
+        return colRanges;
+    }
+
+    // Returns the tuples of every page that satisfy the predicate, in the order of pageIndices.
+    // Only the rows of pageRows are tested in each page (every row when pageRows is null or holds the whole page),
+    // only the colNames columns of the tuples are returned (all of them when null), and at most maxTuples per page.
+    // With Parallelism > 1 the pages are read and tested by the ScanExecutor threads, one task per page
+    Vector<Vector<Tuple>> scanPages(List<Integer> pageIndices, Predicate predicate, KeyRange keyRange, PageRows pageRows,
+                                    String[] colNames, boolean isReversed, int maxTuples) throws DBAppException {
+        Vector<Vector<Tuple>> results = new Vector<>();
+        if (!ScanExecutor.isParallel() || pageIndices.size() < 2) {
+            for (int pageIndex : pageIndices) {
+                Vector<Tuple> tuples = new Vector<>();
+                scanPage(pageIndex, predicate, keyRange, pageRows, colNames, isReversed, maxTuples, tuples);
+                results.add(tuples);
             }
+            return results;
         }
-        return tuples.iterator();
+
+        getPageReferenceById(-1); // builds pagesById before the tasks read it
+        Vector<Callable<Vector<Tuple>>> tasks = new Vector<>();
+        for (int pageIndex : pageIndices)
+            tasks.add(() -> {
+                Vector<Tuple> tuples = new Vector<>();
+                scanPage(pageIndex, predicate, keyRange, pageRows, colNames, isReversed, maxTuples, tuples);
+                return tuples;
+            });
+        return ScanExecutor.invokeAll(tasks);
+    }
+
+    // Adds the tuples of the page that satisfy the predicate to tuples, the page is released before returning.
+    // Only the slots whose clusterKey is in keyRange are tested, they are found by binary search, and when an index
+    // found the rows of the page only their slots are tested and decoded.
+    // The slots are tested from the last one when isReversed, and the scan stops once maxTuples tuples matched.
+    // pageIndices must be pages of this table, the caller holds the lock since it looked them up
+    private void scanPage(int pageIndex, Predicate predicate, KeyRange keyRange, PageRows pageRows, String[] colNames,
+                          boolean isReversed, int maxTuples, Vector<Tuple> tuples) throws DBAppException {
+        PageReference pageRef = getPageReferenceById(pageIndex);
+        Set<Object> rows = pageRows == null ? null : pageRows.getRows(pageIndex);
+
+        // columnar pages are always scanned in place, so only the compared and projected columns are read
+        boolean isScannedInPlace = DBConfig.get().isMappedReads() || Catalog.getSchema(getTableName()).getStorageLayout() == StorageLayout.COLUMNAR;
+        if (isScannedInPlace && !BufferPool.isResident(getTableName(), pageIndex)) {
+            PageView pageView = SerializationManager.mapPage(getTableName(), pageRef);
+            int from = 0;
+            int to = pageView.getSize();
+            if (!keyRange.isAll()) {
+                from = Utils.lowerBound(to, j -> keyRange.isBelow(pageView.getColValue(j, getClusterKeyName())));
+                to = Utils.lowerBound(to, j -> !keyRange.isAbove(pageView.getColValue(j, getClusterKeyName())));
+            }
+            int[] slots = rows == null ? null : findSlots(rows, keyRange, pageView::findSlot);
+            int count = slots == null ? to - from : slots.length;
+            for (int k = 0; k < count && tuples.size() < maxTuples; k++) {
+                int i = isReversed ? count - 1 - k : k;
+                int j = slots == null ? from + i : slots[i];
+                if (predicate.test(pageView, j))
+                    tuples.add(colNames == null ? pageView.getTuple(j) : pageView.getTuple(j, colNames));
+            }
+            return;
+        }
+
+        Page page = SerializationManager.deserializePage(getTableName(), pageRef);
+        int from = Utils.lowerBound(page.getSize(), j -> keyRange.isBelow(page.getTuple(j).getClusterKeyValue()));
+        int to = Utils.lowerBound(page.getSize(), j -> !keyRange.isAbove(page.getTuple(j).getClusterKeyValue()));
+        int[] slots = rows == null ? null : findSlots(rows, keyRange, page::findSlot);
+        int count = slots == null ? to - from : slots.length;
+        for (int k = 0; k < count && tuples.size() < maxTuples; k++) {
+            int i = isReversed ? count - 1 - k : k;
+            Tuple tuple = page.getTuple(slots == null ? from + i : slots[i]);
+            if (predicate.test(tuple))
+                tuples.add(colNames == null ? tuple.copy() : tuple.project(colNames)); // the page's tuples stay in the BufferPool
+        }
+        SerializationManager.releasePage(page);
+    }
+
+    // the slots of the rows in keyRange, in clusterKey order. A row that moved to another page since it was found is not there
+    private static int[] findSlots(Set<Object> rows, KeyRange keyRange, ToIntFunction<Object> findSlot) {
+        return rows.stream().filter(keyRange::contains).mapToInt(findSlot).filter(slot -> slot >= 0).sorted().toArray();
     }
 
 
+    // Everything is checked before the index or the tuple changes, the tuple belongs to the page cached in the BufferPool
     public void updateTuple(Object clusterKeyValue, Hashtable<String, Object> htblColNameValue) throws DBAppException {
+        for (String key : htblColNameValue.keySet())
+            if (key.equalsIgnoreCase(this.clusterKeyName))
+                throw new DBQueryException("Cannot update cluster key value");
+
         int pageIndex = Utils.binarySearch(this.pagesReference, clusterKeyValue);
         if (pageIndex < 0)
             throw new DBNotFoundException("Tuple does not exist");
@@ -137,65 +573,39 @@ public class Table implements Serializable {
         PageReference pageRef = getPageReference(pageIndex);
         Page page = SerializationManager.deserializePage(getTableName(), pageRef);
 
-        Tuple tuple = page.findTuple(clusterKeyValue);
-        this.removeFromIndex(tuple, pageIndex);
+        Tuple tuple;
+        try {
+            tuple = page.findTuple(clusterKeyValue);
+        } catch (DBAppException e) {
+            SerializationManager.releasePage(page);
+            throw e;
+        }
+        this.removeFromIndex(tuple, pageRef.getPageIndex());
 
-        for (String key : htblColNameValue.keySet()) {
-            if (key.equalsIgnoreCase(this.clusterKeyName))
-                throw new DBQueryException("Cannot update cluster key value");
+        for (String key : htblColNameValue.keySet())
             tuple.setColValue(key, htblColNameValue.get(key));
-        }
+        page.updateTuple(tuple); // keeps the zone map of the page up to date
 
-        this.insertIntoIndices(tuple, pageIndex);
+        this.insertIntoIndices(tuple, pageRef.getPageIndex());
 
         SerializationManager.serializePage(page);
     }
 
 
-    public void createIndex(String[] ColNames, Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
-        Index index = new Index(ColNames, min, max);
-        this.indices.add(index);
+    // The index is built in one pass from the entries of every tuple
+    public void createIndex(String[] ColNames, IndexType indexType, Hashtable<String, Object> min, Hashtable<String, Object> max) throws DBAppException {
+        Index index = indexType == IndexType.OCTREE ? new OctreeIndex(this.tableName, ColNames, min, max) : new BPlusTreeIndex(this.tableName, ColNames);
+        this.getIndices().add(index);
+        this.indicesNames.add(index.getIndexName());
 
-        // populate
-        Page page;
+        Vector<Object> entries = new Vector<>();
         for (PageReference pageRef : pagesReference) {
-            page = SerializationManager.deserializePage(getTableName(), pageRef);
-            for (int j = 0; j < page.getSize(); j++) {
-                Tuple tuple = page.getTuple(j);
-                index.insertTuple(tuple, pageRef.getPageIndex());
-            }
+            Page page = SerializationManager.deserializePage(getTableName(), pageRef);
+            for (int j = 0; j < page.getSize(); j++)
+                entries.add(index.getEntry(page.getTuple(j), pageRef.getPageIndex()));
+            SerializationManager.releasePage(page);
         }
-    }
-
-    public boolean canUseIndex(String[] colNames, String[] logicOperators) {
-        Index index = getIndex(colNames);
-        if (index == null) // if no index exists on these columns
-            return false;
-        if (Arrays.stream(logicOperators).allMatch(operator -> operator.equalsIgnoreCase("AND")))
-            return true;
-
-        // indexed columns must be ANDed together and in order from query columns
-        ArrayList<String> indexColNames = new ArrayList<>(Arrays.asList(index.getColNames()));
-        for (int i = 0; i < colNames.length; i++)
-            if (indexColNames.contains(colNames[i].toLowerCase())) {
-                indexColNames.remove(colNames[i]);
-                for (int j = i + 1; !indexColNames.isEmpty(); j++) {
-                    if (!indexColNames.contains(colNames[j].toLowerCase()) || !logicOperators[j - 1].equalsIgnoreCase("AND"))
-                        return false;
-                    indexColNames.remove(colNames[j]);
-                }
-            } else
-                continue;
-
-        return false;
-    }
-
-    private Index getIndex(String[] ColNames) {
-        for (Index index : indices) {
-            if (index.isIndexOn(ColNames))
-                return index;
-        }
-        return null;
+        index.bulkLoad(entries);
     }
 
     // returns page where this clusterKeyValue is between min and max
@@ -209,90 +619,96 @@ public class Table implements Serializable {
     }
 
     private void insertIntoIndices(Tuple tuple, int pageIndex) throws DBAppException {
-        for (int i = 0; i < this.indices.size(); i++)
-            indices.get(i).insertTuple(tuple, pageIndex);
+        for (Index index : getIndices())
+            index.insertTuple(tuple, pageIndex);
     }
 
     private void removeFromIndex(Tuple tuple, int pageIndex) throws DBAppException {
-        for (Index index : this.indices)
+        for (Index index : getIndices())
             index.deleteTuple(tuple, pageIndex);
     }
 
     private void updateIndex(Tuple tuple, int oldPageIndex, int newPageIndex) throws DBAppException {
-        for (Index index : this.indices)
+        for (Index index : getIndices())
             index.updateTuplePageIndex(tuple, oldPageIndex, newPageIndex);
     }
 
-    private void arrangePages() throws DBAppException {
-        distributePages();
-
-        removeEmptyPages();
-    }
+    // Moves the upper half of an overflowing page to a new page placed right after it.
+    // When the tuple was appended to the last page only that tuple is moved, so ascending inserts fill whole pages
+    private void splitPage(int pageIndex, Page page, Tuple insertedTuple) throws DBAppException {
+        boolean isAppend = pageIndex == getPagesCount() - 1 && page.getMaxTuple() == insertedTuple;
+        int from = isAppend ? page.getSize() - 1 : page.getSize() / 2;
 
-    // It is guaranteed that there are enough pages to distribute tuples
-    private void distributePages(/*int startIndex*/) throws DBAppException {
-        int n = this.getPagesCount();
-        for (int i = 0; i < n - 1; i++) {
-            PageReference currPageRef = getPageReference(i);
-            PageReference nextPageRef = getPageReference(i + 1);
+        Page newPage = new Page(this.tableName, nextPageIndex++);
+        for (Tuple tuple : page.moveTuplesTo(newPage, from))
+            this.updateIndex(tuple, page.getPageIndex(), newPage.getPageIndex());
 
-            if (currPageRef.isOverflow()) { // Shift 1 tuple to next page
-                int numShifts = 1;
-                shiftTuplesTo(currPageRef, nextPageRef, numShifts);
-            }
-            if (!currPageRef.isFull() && !nextPageRef.isEmpty()) { // Shift tuples from next page to current page to fill space
-                int numShifts = currPageRef.getEmptySpace();
-                shiftTuplesTo(nextPageRef, currPageRef, numShifts);
-            }
-        }
-    }
-
-    private void removeEmptyPages() {
-        int n = getPagesCount();
-        for (int i = 0; i < n; i++) {
-            PageReference currPageRef = getPageReference(i);
-            if (currPageRef.isEmpty())
-                removePage(currPageRef);
-        }
+        addPage(pageIndex + 1, newPage);
     }
 
-    private void shiftTuplesTo(PageReference fromPageRef, PageReference toPageRef, int numShifts) throws DBAppException {
-        Page fromPage = SerializationManager.deserializePage(this.tableName, fromPageRef);
-        Page toPage = SerializationManager.deserializePage(this.tableName, toPageRef);
-
-        Tuple tuple;
-        int n = fromPage.getSize();
-        for (int i = 0; i < numShifts && i < n; i++) {
-            if (toPage.getPageIndex() > fromPage.getPageIndex())
-                tuple = fromPage.getMaxTuple();
-            else
-                tuple = fromPage.getMinTuple();
-            // update pageIndex in index
-            fromPage.deleteTuple(tuple);
-            toPage.insertTuple(tuple);
-
-            this.updateIndex(tuple, fromPageRef.getPageIndex(), toPageRef.getPageIndex());
+    // Merges an underfull page (less than PageFillFactor of MaximumRowsCountInTablePage) with a neighbour
+    // when their tuples fit in one page, empty pages are removed
+    private void mergePage(int pageIndex) throws DBAppException {
+        PageReference pageRef = getPageReference(pageIndex);
+        if (pageRef.isEmpty()) {
+            removePage(pageRef);
+            return;
         }
 
-        SerializationManager.serializePage(fromPage);
-        SerializationManager.serializePage(toPage);
+        DBConfig config = DBConfig.get();
+        if (pageRef.getSize() >= config.getPageFillFactor() * config.getMaxRowsCountInPage())
+            return;
+
+        // the smaller neighbour, the right page is always merged into the left one
+        int leftIndex = pageIndex;
+        if (pageIndex > 0 && (pageIndex == getPagesCount() - 1 || getPageReference(pageIndex - 1).getSize() < getPageReference(pageIndex + 1).getSize()))
+            leftIndex = pageIndex - 1;
+        if (leftIndex + 1 >= getPagesCount())
+            return;
+
+        PageReference leftPageRef = getPageReference(leftIndex);
+        PageReference rightPageRef = getPageReference(leftIndex + 1);
+        if (leftPageRef.getSize() + rightPageRef.getSize() > config.getMaxRowsCountInPage())
+            return;
+
+        Page leftPage = SerializationManager.deserializePage(this.tableName, leftPageRef);
+        Page rightPage = SerializationManager.deserializePage(this.tableName, rightPageRef);
+        for (Tuple tuple : rightPage.moveTuplesTo(leftPage, 0))
+            this.updateIndex(tuple, rightPage.getPageIndex(), leftPage.getPageIndex());
+
+        SerializationManager.serializePage(leftPage);
+        SerializationManager.releasePage(rightPage);
+        removePage(rightPageRef);
     }
 
-
-    private void addPage(Page page) throws DBAppException {
+    private void addPage(int pageIndex, Page page) throws DBAppException {
         PageReference pageReference = page.getPageReference();
-        this.pagesReference.add(pageReference);
+        this.pagesReference.add(pageIndex, pageReference);
+        this.pagesById = null;
 
         SerializationManager.serializePage(page);
     }
 
-    private void removePage(PageReference pageReference) {
+    private void removePage(PageReference pageReference) throws DBAppException {
         this.pagesReference.remove(pageReference);
+        this.pagesById = null;
+        SerializationManager.deletePage(this.tableName, pageReference.getPageIndex());
+    }
 
-        File pageFile = new File(pageReference.getPagePath());
-        Utils.deleteFolder(pageFile);
+
+    private Vector<Index> getIndices() throws DBAppException {
+        if (this.indices == null) {
+            this.indices = new Vector<>();
+            for (String indexName : this.indicesNames)
+                this.indices.add(SerializationManager.deserializeIndex(this.tableName, indexName));
+        }
+        return this.indices;
     }
 
+    // returns the indices used since this table was deserialized, only those can have changes to write
+    public Vector<Index> getLoadedIndices() {
+        return this.indices == null ? new Vector<>() : this.indices;
+    }
 
     public String getPagePath(int pageIndex) {
         PageReference pageReference = (PageReference) this.pagesReference.get(pageIndex);
@@ -305,10 +721,24 @@ public class Table implements Serializable {
         return this.pagesReference.get(pageIndex);
     }
 
+    // pageIndex is the id of the page file, not its position in pagesReference
+    public PageReference getPageReferenceById(int pageIndex) {
+        if (this.pagesById == null) {
+            this.pagesById = new Hashtable<>();
+            for (PageReference pageRef : this.pagesReference)
+                this.pagesById.put(pageRef.getPageIndex(), pageRef);
+        }
+        return this.pagesById.get(pageIndex);
+    }
+
     public String getTableName() {
         return this.tableName;
     }
 
+    public TableStatistics getStatistics() {
+        return this.statistics;
+    }
+
     public String getClusterKeyName() {
         return this.clusterKeyName;
     }
@@ -320,12 +750,4 @@ public class Table implements Serializable {
     public int getSize() {
         return this.size;
     }
-
-    public boolean isFull() throws DBQueryException {
-        try {
-            return this.size >= Utils.getMaxRowsCountInPage() * getPagesCount();
-        } catch (IOException e) {
-            throw new DBQueryException("Error while getting max rows count in page");
-        }
-    }
 }
\ No newline at end of file
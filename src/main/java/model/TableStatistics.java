@@ -0,0 +1,29 @@
+package model;
+
+import java.io.Serializable;
+import java.util.Hashtable;
+
+// Row counts and column distributions of a table as of its last analyze(), saved with the Table
+public class TableStatistics implements Serializable {
+    private final long rowsCount;
+    private final int pagesCount;
+    private final Hashtable<String, ColumnStatistics> columns;
+
+    TableStatistics(long rowsCount, int pagesCount, Hashtable<String, ColumnStatistics> columns) {
+        this.rowsCount = rowsCount;
+        this.pagesCount = pagesCount;
+        this.columns = columns;
+    }
+
+    public long getRowsCount() {
+        return rowsCount;
+    }
+
+    public int getPagesCount() {
+        return pagesCount;
+    }
+
+    public ColumnStatistics getColumn(String colName) {
+        return columns.get(colName);
+    }
+}
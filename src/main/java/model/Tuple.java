@@ -2,7 +2,6 @@ package model;
 
 import java.io.Serializable;
 import java.util.Hashtable;
-import java.util.Map;
 import java.util.Set;
 
 public class Tuple implements Comparable, Serializable {
@@ -34,68 +33,29 @@ public class Tuple implements Comparable, Serializable {
         return htblColNameValue.get(clusterKeyName);
     }
 
-    public String toString() {
-        String s = "";
-        for (String colName : htblColNameValue.keySet())
-            s += colName + ": " + htblColNameValue.get(colName) + ", ";
-        return s;
-    }
-
-    public Boolean[] AreConditionsSatisfied(Map<String, Object> htblColNameValue, String[] compareOperators) {
-        Boolean[] bool = new Boolean[htblColNameValue.size()];
-
-        String[] keySet = htblColNameValue.keySet().toArray(new String[0]);
-        for (int i = 0; i < htblColNameValue.size(); i++) {
-            String colName = keySet[i];
-            Comparable thisValue = (Comparable) this.getColValue(colName);
-            Object otherValue = htblColNameValue.get(colName);
-            String operator = compareOperators[i];
-
-            int compare = thisValue.compareTo(otherValue);
-            bool[i] = getCompareResult(compare, operator);
+    // a new tuple with only the given columns
+    public Tuple project(String[] colNames) {
+        Hashtable<String, Object> htblProjected = new Hashtable<>();
+        for (String colName : colNames) {
+            Object value = htblColNameValue.get(colName);
+            if (value != null)
+                htblProjected.put(colName, value);
         }
-        return bool;
+        return new Tuple(clusterKeyName, htblProjected);
     }
 
-    public Boolean isTermSatisfied(Boolean[] conditions, String[] logicalOperators) {
-        Boolean result = conditions[0];
-        for (int i = 1; i < conditions.length; i++) {
-            String operator = logicalOperators[i - 1].toUpperCase();
-            switch (operator) {
-                case "AND":
-                    result = result && conditions[i];
-                    break;
-                case "OR":
-                    result = result || conditions[i];
-                    break;
-                case "XOR":
-                    result = result ^ conditions[i];
-                    break;
-            }
-        }
-        return result;
+    // a new tuple with all the columns, changing it does not change this one
+    public Tuple copy() {
+        return new Tuple(clusterKeyName, new Hashtable<>(htblColNameValue));
     }
 
-
-    private boolean getCompareResult(int compare, String operator) {
-        switch (operator) {
-            case ">":
-                return compare > 0;
-            case ">=":
-                return compare >= 0;
-            case "<":
-                return compare < 0;
-            case "<=":
-                return compare <= 0;
-            case "=":
-                return compare == 0;
-            case "!=":
-                return compare != 0;
-        }
-        return false;
+    public String toString() {
+        String s = "";
+        for (String colName : htblColNameValue.keySet())
+            s += colName + ": " + htblColNameValue.get(colName) + ", ";
+        return s;
     }
 
-
     @Override
     public int compareTo(Object o) {
         Comparable thisValue = (Comparable) getClusterKeyValue();
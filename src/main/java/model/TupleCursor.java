@@ -0,0 +1,267 @@
+package model;
+
+import exceptions.DBAppException;
+import model.Page.PageReference;
+import model.Page.ZoneMap;
+import model.Predicate.KeyRange;
+import model.Predicate.Predicate;
+import utils.DBConfig;
+import utils.SerializationManager;
+import utils.Utils;
+
+import java.util.*;
+
+// Pull based result of Table.selectTuples. The candidate pages are scanned a batch at a time when the caller
+// asks for more tuples, only the matching tuples of the current batch are kept and the pages are released right away.
+// Closing the cursor drops the pages that were not scanned yet, they are never read.
+// Writes between two batches can split, merge or replace pages, so the cursor does not keep page ids: the candidates
+// of the plan are kept as clusterKey intervals and index rows, and each batch looks up the current pages of the table
+// from the last clusterKey scanned.
+// In clusterKey order a LIMIT closes the cursor once it is reached, any other order reads every candidate page
+// on the first call and keeps only the OFFSET + LIMIT first tuples in a bounded heap
+public class TupleCursor implements Iterator<Tuple>, AutoCloseable {
+    private final String tableName;
+    private final String clusterKeyName;
+    private final QueryPlan plan;
+    private final TreeMap<Comparable, Comparable> keyIntervals; // min to max clusterKey of runs of candidate pages read whole
+    private final TreeSet<Object> rowKeys; // clusterKeys of the rows an index found
+    private final Predicate predicate;
+    private KeyRange keyRange; // narrowed past the last clusterKey scanned
+    private final SelectOptions options;
+    private final String[] scanColNames; // the columns read from the pages, null for all of them
+    private final boolean isProjectedOnReturn; // scanColNames has columns that were not selected
+    private final boolean isReversed; // ORDER BY clusterKey DESC
+    private final boolean isSorted; // ORDER BY another column
+    private final Object lock;
+    private Vector<Tuple> tuples; // matching tuples of the last scanned batch
+    private boolean isScanned; // no candidate is left after keyRange
+    private int nextTuple;
+    private int skippedCount;
+    private int returnedCount;
+    private boolean isClosed;
+
+    TupleCursor(Table table, QueryPlan plan, Predicate predicate, SelectOptions options, Object lock) {
+        String orderBy = options.getOrderBy();
+        this.tableName = table.getTableName();
+        this.clusterKeyName = table.getClusterKeyName();
+        this.plan = plan;
+        this.predicate = predicate;
+        this.keyRange = plan.getKeyRange();
+        this.options = options;
+        this.isReversed = orderBy != null && orderBy.equals(table.getClusterKeyName()) && options.isDescending();
+        this.isSorted = orderBy != null && !orderBy.equals(table.getClusterKeyName());
+        this.lock = lock;
+        this.tuples = new Vector<>();
+
+        // the cursor is created under the lock, so the plan's page ids still match the pages of the table
+        this.keyIntervals = new TreeMap<>();
+        this.rowKeys = new TreeSet<>();
+        HashSet<Integer> candidatePages = new HashSet<>(plan.getPageIndices());
+        Comparable runMin = null, runMax = null;
+        for (int i = 0; i < table.getPagesCount(); i++) {
+            PageReference pageRef = table.getPageReference(i);
+            Set<Object> rows = plan.getPageRows().getRows(pageRef.getPageIndex());
+            if (pageRef.getMin() == null)
+                continue;
+            if (!candidatePages.contains(pageRef.getPageIndex()) || rows != null) {
+                if (runMin != null)
+                    keyIntervals.put(runMin, runMax);
+                runMin = null;
+                if (rows != null)
+                    rowKeys.addAll(rows);
+                continue;
+            }
+            if (runMin == null)
+                runMin = (Comparable) pageRef.getMin();
+            runMax = (Comparable) pageRef.getMax();
+        }
+        if (runMin != null)
+            keyIntervals.put(runMin, runMax);
+        this.isScanned = keyIntervals.isEmpty() && rowKeys.isEmpty();
+
+        // sorting needs the order column and the clusterKey that breaks its ties, they are dropped when returned
+        String[] colNames = options.getColNames();
+        if (colNames != null && isSorted) {
+            LinkedHashSet<String> sortColNames = new LinkedHashSet<>(Arrays.asList(colNames));
+            sortColNames.add(orderBy);
+            sortColNames.add(table.getClusterKeyName());
+            colNames = sortColNames.toArray(new String[0]);
+        }
+        this.scanColNames = colNames;
+        this.isProjectedOnReturn = colNames != options.getColNames();
+    }
+
+    // a cursor over tuples that are already computed, like the groups of an aggregate
+    TupleCursor(QueryPlan plan, Vector<Tuple> tuples) {
+        this.tableName = null;
+        this.clusterKeyName = null;
+        this.plan = plan;
+        this.keyIntervals = new TreeMap<>();
+        this.rowKeys = new TreeSet<>();
+        this.isScanned = true;
+        this.predicate = null;
+        this.keyRange = plan.getKeyRange();
+        this.options = new SelectOptions();
+        this.scanColNames = null;
+        this.isProjectedOnReturn = false;
+        this.isReversed = false;
+        this.isSorted = false;
+        this.lock = null;
+        this.tuples = tuples;
+    }
+
+    // Iterator cannot throw DBAppException, a failed page read is thrown as an IllegalStateException
+    @Override
+    public boolean hasNext() {
+        if (options.hasLimit() && returnedCount == options.getLimit())
+            close();
+        try {
+            if (isSorted && !isScanned && !isClosed)
+                sortPages();
+            while (!isClosed) {
+                int skipped = Math.min(options.getOffset() - skippedCount, tuples.size() - nextTuple);
+                nextTuple += skipped;
+                skippedCount += skipped;
+                if (nextTuple < tuples.size() || isScanned)
+                    break;
+                scanBatch();
+            }
+        } catch (DBAppException e) {
+            close();
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+        return !isClosed && nextTuple < tuples.size();
+    }
+
+    @Override
+    public Tuple next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        returnedCount++;
+        Tuple tuple = tuples.get(nextTuple++);
+        return isProjectedOnReturn ? tuple.project(options.getColNames()) : tuple;
+    }
+
+    public QueryPlan getPlan() {
+        return plan;
+    }
+
+    // the number of candidate pages when the cursor was opened, scanned or not
+    public int getPagesCount() {
+        return plan.getPageIndices().size();
+    }
+
+    @Override
+    public void close() {
+        isClosed = true;
+        tuples.clear();
+        nextTuple = 0;
+    }
+
+    // one page at a time, or one page per thread with Parallelism > 1. The batches keep the page order,
+    // so the tuples are still returned in clusterKey order. No page returns more tuples than are still needed
+    private void scanBatch() throws DBAppException {
+        int maxTuples = Integer.MAX_VALUE;
+        if (options.hasLimit())
+            maxTuples = options.getOffset() - skippedCount + options.getLimit() - returnedCount;
+
+        tuples.clear();
+        nextTuple = 0;
+        synchronized (lock) {
+            Table table = SerializationManager.deserializeTable(tableName);
+            KeyRange batchRange = keyRange;
+            PageRows batchRows = new PageRows();
+            Vector<Integer> batch = nextBatch(table, batchRows);
+            for (Vector<Tuple> pageTuples : table.scanPages(batch, predicate, batchRange, batchRows, scanColNames, isReversed, maxTuples))
+                tuples.addAll(pageTuples);
+        }
+    }
+
+    // Top-N: the heap keeps the OFFSET + LIMIT first tuples with its last tuple on top. Once it is full,
+    // a page whose zone map shows that none of its values comes before that tuple is not read
+    private void sortPages() throws DBAppException {
+        Comparator<Tuple> comparator = options.getComparator(clusterKeyName);
+        int capacity = options.hasLimit() ? options.getOffset() + options.getLimit() : Integer.MAX_VALUE;
+        PriorityQueue<Tuple> heap = new PriorityQueue<>(comparator.reversed());
+
+        while (!isScanned) {
+            synchronized (lock) {
+                Table table = SerializationManager.deserializeTable(tableName);
+                KeyRange batchRange = keyRange;
+                PageRows batchRows = new PageRows();
+                Vector<Integer> batch = new Vector<>();
+                for (int pageIndex : nextBatch(table, batchRows))
+                    if (heap.size() < capacity || mayPrecede(table, pageIndex, heap.peek()))
+                        batch.add(pageIndex);
+                if (batch.isEmpty())
+                    continue;
+
+                for (Vector<Tuple> pageTuples : table.scanPages(batch, predicate, batchRange, batchRows, scanColNames, false, Integer.MAX_VALUE))
+                    for (Tuple tuple : pageTuples) {
+                        if (heap.size() < capacity)
+                            heap.add(tuple);
+                        else if (comparator.compare(tuple, heap.peek()) < 0) {
+                            heap.poll();
+                            heap.add(tuple);
+                        }
+                    }
+            }
+        }
+
+        tuples = new Vector<>(heap);
+        tuples.sort(comparator);
+        nextTuple = 0;
+    }
+
+    // Must hold the lock. Returns the next Parallelism current pages, in scan order, that hold candidates in keyRange
+    // and adds their candidate rows to batchRows, then moves keyRange past the last of them
+    private Vector<Integer> nextBatch(Table table, PageRows batchRows) {
+        Vector<Integer> batch = new Vector<>();
+        int from = Utils.lowerBound(table.getPagesCount(), i -> keyRange.isBelow(table.getPageReference(i).getMax()));
+        int to = Utils.lowerBound(table.getPagesCount(), i -> !keyRange.isAbove(table.getPageReference(i).getMin()));
+        int parallelism = DBConfig.get().getParallelism();
+        PageReference lastPageRef = null;
+        int k = 0;
+        for (; k < to - from && batch.size() < parallelism; k++) {
+            PageReference pageRef = table.getPageReference(isReversed ? to - 1 - k : from + k);
+            Comparable min = (Comparable) pageRef.getMin();
+            Comparable max = (Comparable) pageRef.getMax();
+            if (min == null)
+                continue;
+
+            Map.Entry<Comparable, Comparable> interval = keyIntervals.floorEntry(max);
+            if (interval != null && interval.getValue().compareTo(min) >= 0)
+                batchRows.addPage(pageRef.getPageIndex());
+            else
+                for (Object clusterKeyValue : rowKeys.subSet(min, true, max, true))
+                    if (keyRange.contains(clusterKeyValue))
+                        batchRows.addRow(pageRef.getPageIndex(), clusterKeyValue);
+            if (batchRows.getPageIndices().contains(pageRef.getPageIndex())) {
+                batch.add(pageRef.getPageIndex());
+                lastPageRef = pageRef;
+            }
+        }
+
+        if (k == to - from)
+            isScanned = true;
+        else if (isReversed)
+            keyRange = keyRange.intersect(new KeyRange(null, true, (Comparable) lastPageRef.getMin(), false));
+        else
+            keyRange = keyRange.intersect(new KeyRange((Comparable) lastPageRef.getMax(), false, null, true));
+        return batch;
+    }
+
+    private boolean mayPrecede(Table table, int pageIndex, Tuple last) {
+        PageReference pageRef = table.getPageReferenceById(pageIndex);
+        ZoneMap zoneMap = pageRef == null ? null : pageRef.getZoneMap();
+        Comparable lastValue = (Comparable) last.getColValue(options.getOrderBy());
+        if (zoneMap == null || lastValue == null)
+            return true;
+
+        Comparable bound = options.isDescending() ? zoneMap.getMax(options.getOrderBy()) : zoneMap.getMin(options.getOrderBy());
+        if (bound == null || (options.isDescending() && zoneMap.getNullsCount(options.getOrderBy()) > 0))
+            return true; // descending puts the nulls first
+        int compare = bound.compareTo(lastValue);
+        return options.isDescending() ? compare >= 0 : compare <= 0;
+    }
+}
@@ -0,0 +1,233 @@
+package utils;
+
+import exceptions.DBAppException;
+import exceptions.DBNotFoundException;
+import model.Page.Page;
+import model.Page.PageReference;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Bounded cache of deserialized pages, keyed by (table, pageIndex) and evicted in LRU order.
+// A page is pinned from fetchPage until unpinPage and is never evicted while pinned.
+// Dirty pages are only written back to disk when evicted or flushed.
+// With the CHECKPOINT flush policy dirty pages are never evicted (no-steal), so the page files only
+// change during a checkpoint, and a deleted page is kept as a dirty tombstone until then.
+public class BufferPool {
+    // accessOrder = true, so iteration goes from least to most recently used
+    private static final LinkedHashMap<String, Frame> frames = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static long hitCount;
+    private static long missCount;
+    private static long evictionCount;
+    private static long writeCount;
+
+    // A missing page is read and decoded outside of the monitor, so parallel scans read different pages at the same time.
+    // Pages only change under the lock of their table, which the scanning caller holds, so the file cannot change meanwhile
+    public static Page fetchPage(String tableName, PageReference pageRef) throws DBAppException {
+        Page page = fetchResidentPage(tableName, pageRef);
+        if (page != null)
+            return page;
+
+        Page readPage = SerializationManager.readPage(tableName, pageRef);
+        synchronized (BufferPool.class) {
+            String key = getKey(tableName, pageRef.getPageIndex());
+
+            Frame frame = frames.get(key);
+            if (frame != null && frame.page == null)
+                throw new DBNotFoundException("Page was deleted");
+            if (frame == null) { // else another thread read the page first, its copy is used
+                missCount++;
+                frame = new Frame(readPage);
+                frames.put(key, frame);
+            } else
+                hitCount++;
+
+            return pin(frame, pageRef);
+        }
+    }
+
+    public static synchronized void unpinPage(Page page, boolean isDirty) throws DBAppException {
+        String key = getKey(page.getTableName(), page.getPageIndex());
+
+        Frame frame = frames.get(key);
+        if (frame == null || frame.page != page) { // page was created by the caller and never fetched
+            frame = new Frame(page);
+            frames.put(key, frame);
+        } else if (frame.pinCount > 0)
+            frame.pinCount--;
+
+        frame.isDirty |= isDirty;
+        evict();
+    }
+
+    public static synchronized boolean isResident(String tableName, int pageIndex) {
+        return frames.containsKey(getKey(tableName, pageIndex));
+    }
+
+    // Writes back all dirty pages of the table, pages stay resident
+    public static synchronized void flush(String tableName) throws DBAppException {
+        String prefix = tableName + "/";
+        Iterator<Map.Entry<String, Frame>> iterator = frames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Frame> entry = iterator.next();
+            if (!entry.getKey().startsWith(prefix))
+                continue;
+
+            writeBack(entry.getValue());
+            if (entry.getValue().page == null)
+                iterator.remove();
+        }
+    }
+
+    public static synchronized void flushAll() throws DBAppException {
+        Iterator<Frame> iterator = frames.values().iterator();
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            writeBack(frame);
+            if (frame.page == null)
+                iterator.remove();
+        }
+    }
+
+    // Drops the page and deletes its file, the file is only deleted by the next checkpoint with the CHECKPOINT flush policy
+    public static synchronized void deletePage(String tableName, int pageIndex) throws DBAppException {
+        String key = getKey(tableName, pageIndex);
+        if (DBConfig.get().getFlushPolicy() != DBConfig.FlushPolicy.CHECKPOINT) {
+            frames.remove(key);
+            SerializationManager.deletePageFile(tableName, pageIndex);
+            return;
+        }
+
+        Frame tombstone = new Frame(tableName, pageIndex);
+        tombstone.isDirty = true;
+        frames.put(key, tombstone);
+    }
+
+    // Drops every page of the table, dirty or deleted ones included, without writing them back
+    public static synchronized void invalidateTable(String tableName) {
+        frames.keySet().removeIf(key -> key.startsWith(tableName + "/"));
+    }
+
+    // true when dirty pages keep the pool above its capacity, the caller should checkpoint
+    public static synchronized boolean isOverCapacity() {
+        return frames.size() > DBConfig.get().getBufferPoolSize();
+    }
+
+    // Drops all pages without writing them back
+    public static synchronized void clear() {
+        frames.clear();
+    }
+
+    // capacity is DBConfig.getBufferPoolSize(), called after the config changes to shrink the pool
+    public static synchronized void resize() throws DBAppException {
+        evict();
+    }
+
+    public static synchronized int getResidentCount() {
+        return frames.size();
+    }
+
+    public static synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public static synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public static synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public static synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    public static synchronized double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public static synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+        evictionCount = 0;
+        writeCount = 0;
+    }
+
+    // Helper methods
+
+    // returns null if the page is not in the pool
+    private static synchronized Page fetchResidentPage(String tableName, PageReference pageRef) throws DBAppException {
+        Frame frame = frames.get(getKey(tableName, pageRef.getPageIndex()));
+        if (frame == null)
+            return null;
+        if (frame.page == null)
+            throw new DBNotFoundException("Page was deleted");
+
+        hitCount++;
+        return pin(frame, pageRef);
+    }
+
+    private static Page pin(Frame frame, PageReference pageRef) throws DBAppException {
+        frame.pinCount++;
+        frame.page.setPageReference(pageRef); // pageRef belongs to the Table instance of the current call
+        evict();
+
+        return frame.page;
+    }
+    private static void evict() throws DBAppException {
+        int capacity = DBConfig.get().getBufferPoolSize();
+        boolean isNoSteal = DBConfig.get().getFlushPolicy() == DBConfig.FlushPolicy.CHECKPOINT;
+        Iterator<Frame> iterator = frames.values().iterator();
+        while (frames.size() > capacity && iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (frame.pinCount > 0) // If all pages are pinned, the pool grows past its capacity until they are unpinned
+                continue;
+            if (isNoSteal && frame.isDirty)
+                continue;
+
+            writeBack(frame);
+            iterator.remove();
+            evictionCount++;
+        }
+    }
+
+    private static void writeBack(Frame frame) throws DBAppException {
+        if (!frame.isDirty)
+            return;
+
+        if (frame.page == null)
+            SerializationManager.deletePageFile(frame.tableName, frame.pageIndex);
+        else
+            SerializationManager.writePage(frame.page);
+        frame.isDirty = false;
+        writeCount++;
+    }
+
+    private static String getKey(String tableName, int pageIndex) {
+        return tableName + "/" + pageIndex;
+    }
+
+    private static class Frame {
+        private final Page page; // null for the tombstone of a deleted page
+        private final String tableName;
+        private final int pageIndex;
+        private int pinCount;
+        private boolean isDirty;
+
+        Frame(Page page) {
+            this.page = page;
+            this.tableName = page.getTableName();
+            this.pageIndex = page.getPageIndex();
+        }
+
+        Frame(String tableName, int pageIndex) {
+            this.page = null;
+            this.tableName = tableName;
+            this.pageIndex = pageIndex;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package utils;
+
+import exceptions.DBAppException;
+import model.Schema.Column;
+import model.Schema.ColumnType;
+import model.Schema.StorageLayout;
+import model.Schema.TableSchema;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+
+// In-memory cache of the tables' schemas. A schema is parsed from its metadata file once,
+// changes are written through to the metadata file before replacing the cached schema.
+public class Catalog {
+    private static final Hashtable<String, TableSchema> schemas = new Hashtable<>();
+
+    public static TableSchema getSchema(String strTableName) throws DBAppException {
+        TableSchema schema = schemas.get(strTableName);
+        if (schema == null) {
+            schema = loadSchema(strTableName);
+            schemas.put(strTableName, schema);
+        }
+        return schema;
+    }
+
+    public static boolean isTableExists(String strTableName) {
+        return schemas.containsKey(strTableName) || MetaDataManager.isMetaDataExists(strTableName);
+    }
+
+    public static void createTable(String strTableName, String strClusteringKeyColumn, Hashtable<String, String> htblColNameType,
+                                   Hashtable<String, String> htblColNameMin, Hashtable<String, String> htblColNameMax,
+                                   StorageLayout storageLayout) throws DBAppException {
+        MetaDataManager.createTableMetaData(strTableName, strClusteringKeyColumn, htblColNameType, htblColNameMin, htblColNameMax, storageLayout);
+
+        schemas.put(strTableName, loadSchema(strTableName));
+    }
+
+    public static void createIndex(String strTableName, String[] strarrColName, String indexType) throws DBAppException {
+        String indexName = String.join("_", strarrColName);
+        TableSchema schema = getSchema(strTableName).withIndex(strarrColName, indexName, indexType);
+
+        MetaDataManager.writeMetaData(schema);
+
+        schemas.put(strTableName, schema);
+    }
+
+    public static void clear() {
+        schemas.clear();
+    }
+
+    // Helper methods
+    private static TableSchema loadSchema(String strTableName) throws DBAppException {
+        Hashtable<String, Hashtable<String, String>> htblColNameMetaData = MetaDataManager.getMetaData(strTableName);
+
+        String[] colNames = htblColNameMetaData.keySet().toArray(new String[0]);
+        Arrays.sort(colNames);
+
+        // tables created before the Storage column existed use the row layout
+        StorageLayout storageLayout = StorageLayout.ROW;
+        Column[] columns = new Column[colNames.length];
+        for (int i = 0; i < colNames.length; i++) {
+            Hashtable<String, String> htblColMetaData = htblColNameMetaData.get(colNames[i]);
+            String typeName = htblColMetaData.get("ColumnType");
+            ColumnType type = ColumnType.of(typeName);
+            String indexName = htblColMetaData.get("IndexName");
+            String indexType = htblColMetaData.get("IndexType");
+
+            columns[i] = new Column(colNames[i], typeName, type, htblColMetaData.get("ClusteringKey").equalsIgnoreCase("True"),
+                    indexName.equals("null") ? null : indexName, indexType.equals("null") ? null : indexType,
+                    type.parse(htblColMetaData.get("Min")), type.parse(htblColMetaData.get("Max")), i);
+            if (htblColMetaData.containsKey("Storage"))
+                storageLayout = StorageLayout.valueOf(htblColMetaData.get("Storage"));
+        }
+
+        return new TableSchema(strTableName, columns, storageLayout);
+    }
+}
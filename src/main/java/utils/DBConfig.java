@@ -0,0 +1,127 @@
+package utils;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+// Engine settings, loaded once by DBApp.init() from DBApp.config.
+// Benchmarks can override any key by passing their own Properties to load().
+public class DBConfig {
+    private static final String CONFIG_PATH = "src/main/resources/DBApp.config";
+
+    private static DBConfig instance;
+
+    private final int maxRowsCountInPage;
+    private final int maxEntriesInOctreeNode;
+    private final int maxEntriesInBPlusTreeNode;
+    private final double pageFillFactor;
+    private final int bufferPoolSize;
+    private final FlushPolicy flushPolicy;
+    private final int parallelism;
+    private final boolean isMappedReads;
+    private final int checkpointInterval;
+    private final boolean isResetOnInit;
+
+    public DBConfig(Properties prop) throws DBAppException {
+        try {
+            this.maxRowsCountInPage = Integer.parseInt(prop.getProperty("MaximumRowsCountInTablePage", "200").trim());
+            this.maxEntriesInOctreeNode = Integer.parseInt(prop.getProperty("MaximumEntriesinOctreeNode", "16").trim());
+            this.maxEntriesInBPlusTreeNode = Integer.parseInt(prop.getProperty("MaximumEntriesinBPlusTreeNode", "64").trim());
+            this.pageFillFactor = Double.parseDouble(prop.getProperty("PageFillFactor", "0.5").trim());
+            this.bufferPoolSize = Integer.parseInt(prop.getProperty("BufferPoolSize", "64").trim());
+            this.flushPolicy = FlushPolicy.valueOf(prop.getProperty("FlushPolicy", "ON_COMMIT").trim().toUpperCase());
+            this.parallelism = Integer.parseInt(prop.getProperty("Parallelism", "1").trim());
+            this.isMappedReads = Boolean.parseBoolean(prop.getProperty("MappedReads", "false").trim());
+            this.checkpointInterval = Integer.parseInt(prop.getProperty("CheckpointInterval", "1000").trim());
+            this.isResetOnInit = Boolean.parseBoolean(prop.getProperty("ResetOnInit", "true").trim());
+        } catch (IllegalArgumentException e) {
+            throw new DBQueryException("Invalid config value: " + e.getMessage());
+        }
+
+        if (maxRowsCountInPage < 1 || maxEntriesInOctreeNode < 1 || maxEntriesInBPlusTreeNode < 1 || bufferPoolSize < 1 || parallelism < 1 || checkpointInterval < 1)
+            throw new DBQueryException("Config values must be positive");
+        if (pageFillFactor <= 0 || pageFillFactor > 1)
+            throw new DBQueryException("PageFillFactor must be in (0, 1]");
+    }
+
+    public static DBConfig load() throws DBAppException {
+        return load(new Properties());
+    }
+
+    // overrides take precedence over the values in DBApp.config
+    public static DBConfig load(Properties overrides) throws DBAppException {
+        Properties prop = new Properties();
+        try (FileInputStream configFile = new FileInputStream(CONFIG_PATH)) {
+            prop.load(configFile);
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to read config file");
+        }
+        prop.putAll(overrides);
+
+        return new DBConfig(prop);
+    }
+
+    // returns the config set by DBApp.init(), DBApp.config is loaded if init() was not called
+    public static DBConfig get() {
+        if (instance == null)
+            try {
+                instance = load();
+            } catch (DBAppException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+        return instance;
+    }
+
+    public static void set(DBConfig config) {
+        instance = config;
+    }
+
+    public int getMaxRowsCountInPage() {
+        return maxRowsCountInPage;
+    }
+
+    public int getMaxEntriesInOctreeNode() {
+        return maxEntriesInOctreeNode;
+    }
+
+    public int getMaxEntriesInBPlusTreeNode() {
+        return maxEntriesInBPlusTreeNode;
+    }
+
+    // a page with fewer rows than this fraction of MaximumRowsCountInTablePage is merged with a neighbour
+    public double getPageFillFactor() {
+        return pageFillFactor;
+    }
+
+    public int getBufferPoolSize() {
+        return bufferPoolSize;
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public boolean isMappedReads() {
+        return isMappedReads;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public boolean isResetOnInit() {
+        return isResetOnInit;
+    }
+
+    public enum FlushPolicy {
+        ON_COMMIT,   // dirty pages are written at the end of every DBApp call
+        CHECKPOINT   // operations are made durable by the WriteAheadLog, dirty pages and tables are written by checkpoints
+    }
+}
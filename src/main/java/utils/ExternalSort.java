@@ -0,0 +1,157 @@
+package utils;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+import model.Tuple;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Vector;
+
+// Sorts tuples by clustering key keeping at most runSize tuples in memory.
+// Every full run is sorted and spilled to a temporary file in the table folder, the runs are then merged
+// with a priority queue while they are read back. Input that fits in one run is never written.
+public class ExternalSort implements Closeable {
+    private static final String RUN_FILE_PREFIX = "sort_run_";
+
+    private final String tableName;
+    private final int runSize;
+    private final Vector<Tuple> run;
+    private final Vector<File> runFiles;
+    private PriorityQueue<RunReader> queue; // created by the first hasNext() or next()
+
+    public ExternalSort(String tableName, int runSize) {
+        this.tableName = tableName;
+        this.runSize = runSize;
+        this.run = new Vector<>();
+        this.runFiles = new Vector<>();
+    }
+
+    public void add(Tuple tuple) throws DBAppException {
+        if (queue != null)
+            throw new DBQueryException("Cannot add tuples while reading sorted tuples");
+
+        run.add(tuple);
+        if (run.size() >= runSize)
+            spillRun();
+    }
+
+    public boolean hasNext() throws DBAppException {
+        return !getQueue().isEmpty();
+    }
+
+    public Tuple next() throws DBAppException {
+        RunReader reader = getQueue().poll();
+        if (reader == null)
+            return null;
+
+        Tuple tuple = reader.head;
+        if (reader.advance())
+            queue.add(reader);
+        return tuple;
+    }
+
+    @Override
+    public void close() {
+        if (queue != null)
+            for (RunReader reader : queue)
+                reader.close();
+        for (File runFile : runFiles)
+            runFile.delete();
+        run.clear();
+        runFiles.clear();
+    }
+
+    // Helper methods
+    private PriorityQueue<RunReader> getQueue() throws DBAppException {
+        if (queue != null)
+            return queue;
+
+        queue = new PriorityQueue<>((a, b) -> a.head.compareTo(b.head));
+        Collections.sort((Vector) run);
+        RunReader memoryRun = new RunReader(new Vector<>(run).iterator());
+        run.clear();
+
+        if (memoryRun.advance())
+            queue.add(memoryRun);
+        for (File runFile : runFiles) {
+            RunReader reader = new RunReader(runFile);
+            if (reader.advance())
+                queue.add(reader);
+        }
+        return queue;
+    }
+
+    private void spillRun() throws DBAppException {
+        Collections.sort((Vector) run);
+        File runFile = new File(Utils.getTableFolderPath(tableName) + RUN_FILE_PREFIX + runFiles.size());
+
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(runFile)))) {
+            out.writeInt(run.size());
+            for (Tuple tuple : run) {
+                out.writeObject(tuple);
+                out.reset(); // tuples are not shared, do not keep every written tuple referenced by the stream
+            }
+        } catch (IOException e) {
+            runFile.delete();
+            throw new DBQueryException("Failed to write sort run");
+        }
+
+        runFiles.add(runFile);
+        run.clear();
+    }
+
+    // A sorted run read one tuple at a time, from memory or from its file
+    private static class RunReader {
+        private final Iterator<Tuple> memoryTuples;
+        private ObjectInputStream in;
+        private int remaining;
+        private Tuple head;
+
+        RunReader(Iterator<Tuple> memoryTuples) {
+            this.memoryTuples = memoryTuples;
+        }
+
+        RunReader(File runFile) throws DBAppException {
+            this.memoryTuples = null;
+            try {
+                this.in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(runFile)));
+                this.remaining = in.readInt();
+            } catch (IOException e) {
+                throw new DBQueryException("Failed to read sort run");
+            }
+        }
+
+        // moves head to the next tuple, returns false when the run is exhausted
+        boolean advance() throws DBAppException {
+            if (memoryTuples != null) {
+                head = memoryTuples.hasNext() ? memoryTuples.next() : null;
+                return head != null;
+            }
+
+            if (remaining == 0) {
+                close();
+                return false;
+            }
+            try {
+                head = (Tuple) in.readObject();
+                remaining--;
+                return true;
+            } catch (IOException | ClassNotFoundException e) {
+                throw new DBQueryException("Failed to read sort run");
+            }
+        }
+
+        void close() {
+            if (in == null)
+                return;
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+            in = null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package utils;
+
+import java.io.Serializable;
+import java.util.Hashtable;
+
+// One logical operation in the WriteAheadLog, replayed through DBApp on recovery
+public class LogRecord implements Serializable {
+    private final Type type;
+    private final String tableName;
+    private final String clusteringKeyValue; // only for UPDATE
+    private final Hashtable<String, Object> htblColNameValue;
+
+    private LogRecord(Type type, String tableName, String clusteringKeyValue, Hashtable<String, Object> htblColNameValue) {
+        this.type = type;
+        this.tableName = tableName;
+        this.clusteringKeyValue = clusteringKeyValue;
+        this.htblColNameValue = htblColNameValue;
+    }
+
+    public static LogRecord insert(String tableName, Hashtable<String, Object> htblColNameValue) {
+        return new LogRecord(Type.INSERT, tableName, null, htblColNameValue);
+    }
+
+    public static LogRecord update(String tableName, String clusteringKeyValue, Hashtable<String, Object> htblColNameValue) {
+        return new LogRecord(Type.UPDATE, tableName, clusteringKeyValue, htblColNameValue);
+    }
+
+    public static LogRecord delete(String tableName, Hashtable<String, Object> htblColNameValue) {
+        return new LogRecord(Type.DELETE, tableName, null, htblColNameValue);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getClusteringKeyValue() {
+        return clusteringKeyValue;
+    }
+
+    public Hashtable<String, Object> getHtblColNameValue() {
+        return htblColNameValue;
+    }
+
+    public enum Type {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+}
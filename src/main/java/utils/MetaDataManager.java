@@ -4,11 +4,13 @@ import exceptions.DBAlreadyExistsException;
 import exceptions.DBAppException;
 import exceptions.DBNotFoundException;
 import exceptions.DBQueryException;
+import model.Schema.Column;
+import model.Schema.ColumnType;
+import model.Schema.StorageLayout;
+import model.Schema.TableSchema;
 
 import java.io.*;
-import java.util.Arrays;
 import java.util.Hashtable;
-import java.util.List;
 
 public class MetaDataManager {
     private static final String META_DATA_FOLDER = "src/main/resources/metadata/";
@@ -22,24 +24,25 @@ public class MetaDataManager {
 
         if (!metaFolder.mkdirs())
             throw new IOException("Failed to create metadata folder");
+        Catalog.clear();
     }
 
-    public static Hashtable<String, String> getClusteringKeyMetaData(Hashtable<String, Hashtable<String, String>> htblColNameMetaData) {
-        for (Hashtable<String, String> htblColMetaData : htblColNameMetaData.values())
-            if (htblColMetaData.get("ClusteringKey").equalsIgnoreCase("True"))
-                return htblColMetaData;
-        return null;
+    // Keeps the existing metadata files, used when DBApp.init() recovers instead of resetting
+    public static void openMetaDataFolder() {
+        Utils.createFolder(META_DATA_FOLDER);
+        Catalog.clear();
     }
 
     public static void createTableMetaData(String strTableName, String strClusteringKeyColumn, Hashtable<String, String> htblColNameType,
-                                           Hashtable<String, String> htblColNameMin, Hashtable<String, String> htblColNameMax) throws DBAppException {
+                                           Hashtable<String, String> htblColNameMin, Hashtable<String, String> htblColNameMax,
+                                           StorageLayout storageLayout) throws DBAppException {
         try {
             String tableMetaDataFile = META_DATA_FOLDER + strTableName + ".csv";
             if (new File(tableMetaDataFile).exists())
                 throw new DBAlreadyExistsException("Table MetaData already exists");
 
             FileWriter writer = new FileWriter(tableMetaDataFile, true);
-            writer.write("TableName,ColumnName,ColumnType,ClusteringKey,IndexName,IndexType,Min,Max\n");
+            writer.write("TableName,ColumnName,ColumnType,ClusteringKey,IndexName,IndexType,Min,Max,Storage\n");
 
             // loop on all columns and write their metadata to the file
             int numCols = htblColNameType.size();
@@ -50,7 +53,7 @@ public class MetaDataManager {
                 String ColNameMax = htblColNameMax.get(ColNames[i]);
 
                 writer.write(strTableName + "," + ColNames[i] + "," + ColNameType + "," + (ColNames[i].equalsIgnoreCase(strClusteringKeyColumn) ? "True" : "False")
-                        + "," + "null" + "," + "null" + "," + ColNameMin + "," + ColNameMax + "\n");
+                        + "," + "null" + "," + "null" + "," + ColNameMin + "," + ColNameMax + "," + storageLayout + "\n");
             }
             writer.close();
         } catch (IOException e) {
@@ -93,36 +96,28 @@ public class MetaDataManager {
         }
     }
 
-    public static void createIndex(String strTableName, String[] ColNames) throws DBAppException {
+    // Rewrites the metadata file of the table from its schema
+    public static void writeMetaData(TableSchema schema) throws DBAppException {
         try {
-            String tableMetaDataFile = META_DATA_FOLDER + strTableName + ".csv";
-
-            FileReader fr = new FileReader(tableMetaDataFile);
-            BufferedReader br = new BufferedReader(fr);
-
-            String oldMetaData = "";
-            List<String> colNamesList = Arrays.asList(ColNames);
-            br.readLine();
-            while (br.ready()) {
-                String[] colMetaData = br.readLine().split(",");
-                String colNameIndexName = String.join("_", ColNames);
-                ;
-
-                if (colNamesList.contains(colMetaData[1]))
-                    oldMetaData += (colMetaData[0] + "," + colMetaData[1] + "," + colMetaData[2] + "," + colMetaData[3] + "," +
-                            colNameIndexName + "," + "Octree" + "," + colMetaData[6] + "," + colMetaData[7] + "\n");
-                else
-                    oldMetaData += (colMetaData[0] + "," + colMetaData[1] + "," + colMetaData[2] + "," + colMetaData[3] + "," +
-                            "null" + "," + "null" + "," + colMetaData[6] + "," + colMetaData[7] + "\n");
-            }
-            br.close();
+            String tableMetaDataFile = META_DATA_FOLDER + schema.getTableName() + ".csv";
 
             FileWriter writer = new FileWriter(tableMetaDataFile);
-            writer.write("TableName,ColumnName,ColumnType,ClusteringKey,IndexName,IndexType,Min,Max\n");
-            writer.write(oldMetaData);
+            writer.write("TableName,ColumnName,ColumnType,ClusteringKey,IndexName,IndexType,Min,Max,Storage\n");
+            for (int i = 0; i < schema.getColumnsCount(); i++) {
+                Column column = schema.getColumn(i);
+                ColumnType type = column.getType();
+
+                writer.write(schema.getTableName() + "," + column.getName() + "," + column.getTypeName() + "," + (column.isClusteringKey() ? "True" : "False")
+                        + "," + column.getIndexName() + "," + column.getIndexType() + "," + type.format(column.getMin()) + "," + type.format(column.getMax())
+                        + "," + schema.getStorageLayout() + "\n");
+            }
             writer.close();
         } catch (IOException e) {
-            throw new DBQueryException("Failed to create Table MetaData");
+            throw new DBQueryException("Failed to write Table MetaData");
         }
     }
+
+    public static boolean isMetaDataExists(String strTableName) {
+        return new File(META_DATA_FOLDER + strTableName + ".csv").exists();
+    }
 }
@@ -0,0 +1,363 @@
+package utils;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+import model.Page.Page;
+import model.Schema.ColumnType;
+import model.Schema.StorageLayout;
+import model.Schema.TableSchema;
+import model.Tuple;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Date;
+import java.util.Hashtable;
+import java.util.Vector;
+
+// Binary page format, the layout field of the header tells how the tuples follow it.
+// header  | magic (int) | version (short) | layout (short) | pageIndex (int) | tuplesCount (int) |
+//
+// Row layout (0):
+// slots   | offset of each record from the start of the page (int) ...                          |
+// records | see RecordLayout                                                                     |
+//
+// Columnar layout (1), PAX:
+// columns | offset of each column block from the start of the page (int) ...                     |
+// blocks  | null bitmap of the tuples | values                                                   |
+// values are one fixed width value per tuple (int, double or long), or for a String column
+// tuplesCount + 1 offsets (int) relative to the string bytes that follow them.
+public class PageCodec {
+    public static final int HEADER_SIZE = 16;
+    public static final int SLOT_SIZE = Integer.BYTES;
+
+    private static final int MAGIC = 0x4D444250; // "MDBP"
+    private static final short VERSION = 1;
+    private static final short ROW_LAYOUT = 0;
+    private static final short COLUMNAR_LAYOUT = 1;
+    private static final int LAYOUT_OFFSET = 6;
+    private static final int TUPLES_COUNT_OFFSET = 12;
+
+    public static byte[] encode(Page page) throws DBAppException {
+        TableSchema schema = Catalog.getSchema(page.getTableName());
+        if (schema.getStorageLayout() == StorageLayout.COLUMNAR)
+            return encodeColumnar(page, schema.getRecordLayout());
+        return encodeRows(page, schema.getRecordLayout());
+    }
+
+    public static Page decode(String tableName, ByteBuffer buffer) throws DBAppException {
+        RecordLayout layout = getLayout(tableName);
+        int pageIndex = checkHeader(buffer);
+        int n = getTuplesCount(buffer);
+
+        Vector<Tuple> tuples = new Vector<>(n);
+        for (int slot = 0; slot < n; slot++)
+            tuples.add(decodeRecord(buffer, layout, slot));
+
+        return new Page(tableName, pageIndex, tuples);
+    }
+
+    public static int getTuplesCount(ByteBuffer buffer) {
+        return buffer.getInt(TUPLES_COUNT_OFFSET);
+    }
+
+    // Decodes one tuple of an encoded page without touching the other tuples
+    public static Tuple decodeTuple(String tableName, ByteBuffer buffer, int slot) throws DBAppException {
+        RecordLayout layout = getLayout(tableName);
+        return decodeRecord(buffer, layout, slot);
+    }
+
+    // Reads one tuple from a page file. For the row layout only the header, its slot and its record are read
+    public static Tuple readTuple(String tableName, int pageIndex, int slot) throws DBAppException {
+        RecordLayout layout = getLayout(tableName);
+        String pagePath = Utils.getPageFilePath(tableName, pageIndex);
+        try (RandomAccessFile file = new RandomAccessFile(pagePath, "r")) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            file.getChannel().read(header, 0);
+            checkHeader(header);
+
+            int n = getTuplesCount(header);
+            if (slot < 0 || slot >= n)
+                throw new DBQueryException("Invalid slot");
+
+            if (isColumnar(header)) // a tuple is spread over every column block
+                return decodeRecord(ByteBuffer.wrap(Files.readAllBytes(Paths.get(pagePath))), layout, slot);
+
+            ByteBuffer slots = ByteBuffer.allocate(2 * SLOT_SIZE);
+            file.getChannel().read(slots, HEADER_SIZE + (long) slot * SLOT_SIZE);
+            int start = slots.getInt(0);
+            int end = slot == n - 1 ? (int) file.length() : slots.getInt(SLOT_SIZE);
+
+            // a single record page, its slot points right after the header
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + SLOT_SIZE + end - start);
+            record.putInt(TUPLES_COUNT_OFFSET, 1);
+            record.putInt(HEADER_SIZE, HEADER_SIZE + SLOT_SIZE);
+            file.getChannel().read(record.position(HEADER_SIZE + SLOT_SIZE), start);
+
+            return decodeRecord(record, layout, 0);
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to read tuple");
+        }
+    }
+
+    // The accessors below read one value of an encoded page in place, whatever its layout
+
+    public static boolean isNull(ByteBuffer buffer, RecordLayout layout, int slot, int col) {
+        if (isColumnar(buffer)) {
+            int block = getColumnBlock(buffer, col);
+            return (buffer.get(block + slot / 8) & (1 << (slot % 8))) != 0;
+        }
+        int start = getRecordOffset(buffer, slot);
+        return (buffer.get(start + col / 8) & (1 << (col % 8))) != 0;
+    }
+
+    // position of the fixed width value (int, double or long) of a non String column
+    public static int getValuePosition(ByteBuffer buffer, RecordLayout layout, int slot, int col) {
+        if (isColumnar(buffer))
+            return getColumnValues(buffer, col) + slot * layout.getColWidth(col);
+        return getRecordOffset(buffer, slot) + layout.getColOffset(col);
+    }
+
+    public static int getStringOffset(ByteBuffer buffer, RecordLayout layout, int slot, int col) {
+        if (isColumnar(buffer)) {
+            int offsets = getColumnValues(buffer, col);
+            return offsets + (getTuplesCount(buffer) + 1) * Integer.BYTES + buffer.getInt(offsets + slot * Integer.BYTES);
+        }
+        int start = getRecordOffset(buffer, slot);
+        return start + buffer.getInt(start + layout.getColOffset(col));
+    }
+
+    public static int getStringLength(ByteBuffer buffer, RecordLayout layout, int slot, int col) {
+        if (isColumnar(buffer)) {
+            int offsets = getColumnValues(buffer, col) + slot * Integer.BYTES;
+            return buffer.getInt(offsets + Integer.BYTES) - buffer.getInt(offsets);
+        }
+        return buffer.getInt(getRecordOffset(buffer, slot) + layout.getColOffset(col) + Integer.BYTES);
+    }
+
+    public static Object decodeValue(ByteBuffer buffer, RecordLayout layout, int slot, int col) {
+        if (isNull(buffer, layout, slot, col))
+            return null;
+
+        switch (layout.getColType(col)) {
+            case INTEGER:
+                return buffer.getInt(getValuePosition(buffer, layout, slot, col));
+            case DOUBLE:
+                return buffer.getDouble(getValuePosition(buffer, layout, slot, col));
+            case DATE:
+                return new Date(buffer.getLong(getValuePosition(buffer, layout, slot, col)));
+            default: // STRING
+                return decodeString(buffer, getStringOffset(buffer, layout, slot, col), getStringLength(buffer, layout, slot, col));
+        }
+    }
+
+    public static String decodeString(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static RecordLayout getLayout(String tableName) throws DBAppException {
+        return Catalog.getSchema(tableName).getRecordLayout();
+    }
+
+    // Helper methods
+    private static int checkHeader(ByteBuffer buffer) throws DBAppException {
+        if (buffer.getInt(0) != MAGIC || buffer.getShort(4) != VERSION)
+            throw new DBQueryException("Invalid page file");
+        return buffer.getInt(8);
+    }
+
+    private static boolean isColumnar(ByteBuffer buffer) {
+        return buffer.getShort(LAYOUT_OFFSET) == COLUMNAR_LAYOUT;
+    }
+
+    private static int getRecordOffset(ByteBuffer buffer, int slot) {
+        return buffer.getInt(HEADER_SIZE + slot * SLOT_SIZE);
+    }
+
+    private static int getColumnBlock(ByteBuffer buffer, int col) {
+        return buffer.getInt(HEADER_SIZE + col * SLOT_SIZE);
+    }
+
+    // values start after the null bitmap of the block
+    private static int getColumnValues(ByteBuffer buffer, int col) {
+        return getColumnBlock(buffer, col) + (getTuplesCount(buffer) + 7) / 8;
+    }
+
+    private static void putHeader(ByteBuffer buffer, short layout, Page page) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort(layout);
+        buffer.putInt(page.getPageIndex());
+        buffer.putInt(page.getSize());
+    }
+
+    private static byte[] encodeRows(Page page, RecordLayout layout) {
+        int n = page.getSize();
+
+        // encode strings once to know the size of each record
+        byte[][][] strings = new byte[n][][];
+        int[] recordSizes = new int[n];
+        int pageSize = HEADER_SIZE + n * SLOT_SIZE;
+        for (int i = 0; i < n; i++) {
+            Tuple tuple = page.getTuple(i);
+            strings[i] = new byte[layout.getColumnsCount()][];
+            recordSizes[i] = layout.getFixedSize();
+            for (int col = 0; col < layout.getColumnsCount(); col++) {
+                Object value = tuple.getColValue(layout.getColName(col));
+                if (layout.getColType(col) == ColumnType.STRING && value != null) {
+                    strings[i][col] = ((String) value).getBytes(StandardCharsets.UTF_8);
+                    recordSizes[i] += strings[i][col].length;
+                }
+            }
+            pageSize += recordSizes[i];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        putHeader(buffer, ROW_LAYOUT, page);
+
+        int offset = HEADER_SIZE + n * SLOT_SIZE;
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(offset);
+            offset += recordSizes[i];
+        }
+
+        for (int i = 0; i < n; i++)
+            encodeRecord(buffer, layout, page.getTuple(i), strings[i]);
+
+        return buffer.array();
+    }
+
+    private static void encodeRecord(ByteBuffer buffer, RecordLayout layout, Tuple tuple, byte[][] strings) {
+        int start = buffer.position();
+        int varOffset = layout.getFixedSize();
+        byte[] nullBitmap = new byte[layout.getNullBitmapSize()];
+
+        for (int col = 0; col < layout.getColumnsCount(); col++) {
+            Object value = tuple.getColValue(layout.getColName(col));
+            int position = start + layout.getColOffset(col);
+            if (value == null) {
+                nullBitmap[col / 8] |= 1 << (col % 8);
+                continue;
+            }
+
+            switch (layout.getColType(col)) {
+                case INTEGER:
+                    buffer.putInt(position, (Integer) value);
+                    break;
+                case DOUBLE:
+                    buffer.putDouble(position, (Double) value);
+                    break;
+                case DATE:
+                    buffer.putLong(position, ((Date) value).getTime());
+                    break;
+                case STRING:
+                    buffer.putInt(position, varOffset);
+                    buffer.putInt(position + Integer.BYTES, strings[col].length);
+                    buffer.put(start + varOffset, strings[col]);
+                    varOffset += strings[col].length;
+                    break;
+            }
+        }
+        buffer.put(start, nullBitmap);
+        buffer.position(start + varOffset);
+    }
+
+    private static byte[] encodeColumnar(Page page, RecordLayout layout) {
+        int n = page.getSize();
+        int cols = layout.getColumnsCount();
+        int nullBitmapSize = (n + 7) / 8;
+
+        // encode strings once to know the size of each column block
+        byte[][][] strings = new byte[cols][][];
+        int[] blockSizes = new int[cols];
+        int pageSize = HEADER_SIZE + cols * SLOT_SIZE;
+        for (int col = 0; col < cols; col++) {
+            blockSizes[col] = nullBitmapSize;
+            if (layout.getColType(col) != ColumnType.STRING)
+                blockSizes[col] += n * layout.getColWidth(col);
+            else {
+                strings[col] = new byte[n][];
+                blockSizes[col] += (n + 1) * Integer.BYTES;
+                for (int i = 0; i < n; i++) {
+                    Object value = page.getTuple(i).getColValue(layout.getColName(col));
+                    if (value != null) {
+                        strings[col][i] = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        blockSizes[col] += strings[col][i].length;
+                    }
+                }
+            }
+            pageSize += blockSizes[col];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(pageSize);
+        putHeader(buffer, COLUMNAR_LAYOUT, page);
+
+        int offset = HEADER_SIZE + cols * SLOT_SIZE;
+        for (int col = 0; col < cols; col++) {
+            buffer.putInt(offset);
+            offset += blockSizes[col];
+        }
+
+        for (int col = 0; col < cols; col++)
+            encodeColumn(buffer, layout, page, col, strings[col], nullBitmapSize);
+
+        return buffer.array();
+    }
+
+    private static void encodeColumn(ByteBuffer buffer, RecordLayout layout, Page page, int col, byte[][] strings, int nullBitmapSize) {
+        int n = page.getSize();
+        int start = buffer.position();
+        int values = start + nullBitmapSize;
+        int width = layout.getColWidth(col);
+        int stringsStart = values + (n + 1) * Integer.BYTES; // String columns only
+        int stringOffset = 0;
+        byte[] nullBitmap = new byte[nullBitmapSize];
+
+        for (int i = 0; i < n; i++) {
+            Object value = page.getTuple(i).getColValue(layout.getColName(col));
+            if (value == null)
+                nullBitmap[i / 8] |= 1 << (i % 8);
+
+            switch (layout.getColType(col)) {
+                case INTEGER:
+                    buffer.putInt(values + i * width, value == null ? 0 : (Integer) value);
+                    break;
+                case DOUBLE:
+                    buffer.putDouble(values + i * width, value == null ? 0 : (Double) value);
+                    break;
+                case DATE:
+                    buffer.putLong(values + i * width, value == null ? 0 : ((Date) value).getTime());
+                    break;
+                case STRING:
+                    buffer.putInt(values + i * Integer.BYTES, stringOffset);
+                    if (value != null) {
+                        buffer.put(stringsStart + stringOffset, strings[i]);
+                        stringOffset += strings[i].length;
+                    }
+                    break;
+            }
+        }
+
+        buffer.put(start, nullBitmap);
+        if (layout.getColType(col) == ColumnType.STRING) {
+            buffer.putInt(values + n * Integer.BYTES, stringOffset);
+            buffer.position(stringsStart + stringOffset);
+        } else
+            buffer.position(values + n * width);
+    }
+
+    private static Tuple decodeRecord(ByteBuffer buffer, RecordLayout layout, int slot) {
+        Hashtable<String, Object> htblColNameValue = new Hashtable<>();
+        for (int col = 0; col < layout.getColumnsCount(); col++) {
+            Object value = decodeValue(buffer, layout, slot, col);
+            if (value != null)
+                htblColNameValue.put(layout.getColName(col), value);
+        }
+        return new Tuple(layout.getClusterKeyName(), htblColNameValue);
+    }
+}
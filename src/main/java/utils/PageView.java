@@ -0,0 +1,94 @@
+package utils;
+
+import exceptions.DBAppException;
+import model.Schema.Column;
+import model.Schema.TableSchema;
+import model.Tuple;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.Hashtable;
+
+// Read only view over an encoded page (usually a MappedByteBuffer of the page file).
+// Predicates are evaluated against the encoded bytes, a Tuple is only decoded when asked for.
+public class PageView {
+    private final String tableName;
+    private final TableSchema schema;
+    private final RecordLayout layout;
+    private final ByteBuffer buffer;
+
+    public PageView(String tableName, ByteBuffer buffer) throws DBAppException {
+        this.tableName = tableName;
+        this.schema = Catalog.getSchema(tableName);
+        this.layout = schema.getRecordLayout();
+        this.buffer = buffer;
+    }
+
+    public int getSize() {
+        return PageCodec.getTuplesCount(buffer);
+    }
+
+    public Tuple getTuple(int slot) throws DBAppException {
+        return PageCodec.decodeTuple(tableName, buffer, slot);
+    }
+
+    // decodes only the given columns of the tuple
+    public Tuple getTuple(int slot, String[] colNames) {
+        Hashtable<String, Object> htblColNameValue = new Hashtable<>();
+        for (String colName : colNames) {
+            Object value = getColValue(slot, colName);
+            if (value != null)
+                htblColNameValue.put(colName, value);
+        }
+        return new Tuple(layout.getClusterKeyName(), htblColNameValue);
+    }
+
+    public Object getColValue(int slot, String colName) {
+        int col = getColPosition(colName);
+        return col < 0 ? null : PageCodec.decodeValue(buffer, layout, slot, col);
+    }
+
+    // the slot of the tuple with this clusterKey found by binary search, -1 if the page has none
+    public int findSlot(Object clusterKeyValue) {
+        int col = getColPosition(layout.getClusterKeyName());
+        int slot = Utils.lowerBound(getSize(), j -> compare(j, col, clusterKeyValue) < 0);
+        return slot < getSize() && compare(slot, col, clusterKeyValue) == 0 ? slot : -1;
+    }
+
+    public boolean isNull(int slot, int col) {
+        return PageCodec.isNull(buffer, layout, slot, col);
+    }
+
+    private int getColPosition(String colName) {
+        Column column = schema.getColumn(colName);
+        return column == null ? -1 : column.getPosition();
+    }
+
+    // compares the encoded value with value without decoding it, the value must not be null
+    public int compare(int slot, int col, Object value) {
+        switch (layout.getColType(col)) {
+            case INTEGER:
+                return Integer.compare(buffer.getInt(PageCodec.getValuePosition(buffer, layout, slot, col)), (Integer) value);
+            case DOUBLE:
+                return Double.compare(buffer.getDouble(PageCodec.getValuePosition(buffer, layout, slot, col)), (Double) value);
+            case DATE:
+                return Long.compare(buffer.getLong(PageCodec.getValuePosition(buffer, layout, slot, col)), ((Date) value).getTime());
+            default: // STRING
+                return compareString(PageCodec.getStringOffset(buffer, layout, slot, col), PageCodec.getStringLength(buffer, layout, slot, col), (String) value);
+        }
+    }
+
+    // UTF-8 bytes of ASCII characters compare the same as the chars, anything else is decoded to keep String.compareTo order
+    private int compareString(int offset, int length, String value) {
+        int n = Math.min(length, value.length());
+        for (int i = 0; i < n; i++) {
+            int b = buffer.get(offset + i);
+            char c = value.charAt(i);
+            if (b < 0 || c >= 0x80)
+                return PageCodec.decodeString(buffer, offset, length).compareTo(value);
+            if (b != c)
+                return b - c;
+        }
+        return length - value.length();
+    }
+}
@@ -0,0 +1,79 @@
+package utils;
+
+import model.Schema.ColumnType;
+import model.Schema.TableSchema;
+
+// Byte layout of one tuple inside a row layout page file, derived from the table schema.
+// A record is a null bitmap, then one fixed width slot per column (in column position order),
+// then the bytes of the variable length columns. A String slot holds the offset (relative to the record start)
+// and the length of its bytes, so any column can be read without decoding the ones before it.
+public class RecordLayout {
+    private final String clusterKeyName;
+    private final String[] colNames;
+    private final ColumnType[] colTypes;
+    private final int[] colOffsets;
+    private final int nullBitmapSize;
+    private final int fixedSize;
+
+    public RecordLayout(TableSchema schema) {
+        int n = schema.getColumnsCount();
+        this.colNames = new String[n];
+        this.colTypes = new ColumnType[n];
+        this.colOffsets = new int[n];
+        this.nullBitmapSize = (n + 7) / 8;
+        this.clusterKeyName = schema.getClusteringKey().getName();
+
+        int offset = nullBitmapSize;
+        for (int i = 0; i < n; i++) {
+            colNames[i] = schema.getColumn(i).getName();
+            colTypes[i] = schema.getColumn(i).getType();
+            colOffsets[i] = offset;
+            offset += getFixedWidth(colTypes[i]);
+        }
+        this.fixedSize = offset;
+    }
+
+    public String getClusterKeyName() {
+        return clusterKeyName;
+    }
+
+    public int getColumnsCount() {
+        return colNames.length;
+    }
+
+    public String getColName(int col) {
+        return colNames[col];
+    }
+
+    public ColumnType getColType(int col) {
+        return colTypes[col];
+    }
+
+    public int getColOffset(int col) {
+        return colOffsets[col];
+    }
+
+    // width of a value in its fixed slot, for a String the slot holds its offset and length
+    public int getColWidth(int col) {
+        return getFixedWidth(colTypes[col]);
+    }
+
+    public int getNullBitmapSize() {
+        return nullBitmapSize;
+    }
+
+    public int getFixedSize() {
+        return fixedSize;
+    }
+
+    private static int getFixedWidth(ColumnType type) {
+        switch (type) {
+            case INTEGER:
+                return Integer.BYTES;
+            case STRING: // offset + length
+                return 2 * Integer.BYTES;
+            default: // DOUBLE, DATE
+                return Long.BYTES;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package utils;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Runs the page scans of one query on a shared ForkJoinPool of DBConfig.getParallelism() threads.
+// The tasks only read pages, the caller must hold the lock that writers of the table take while they run
+public class ScanExecutor {
+    private static ForkJoinPool pool;
+
+    public static boolean isParallel() {
+        return DBConfig.get().getParallelism() > 1;
+    }
+
+    // Returns the results of the tasks in the order of the tasks
+    public static <T> Vector<T> invokeAll(List<Callable<T>> tasks) throws DBAppException {
+        Vector<T> results = new Vector<>();
+        try {
+            for (Future<T> future : getPool().invokeAll(tasks))
+                results.add(future.get());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DBAppException)
+                throw (DBAppException) e.getCause();
+            throw new DBQueryException("Failed to scan pages: " + e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DBQueryException("Interrupted while scanning pages");
+        }
+        return results;
+    }
+
+    // the pool is replaced when DBApp.init() changes the configured parallelism
+    private static synchronized ForkJoinPool getPool() {
+        int parallelism = DBConfig.get().getParallelism();
+        if (pool == null || pool.getParallelism() != parallelism) {
+            if (pool != null)
+                pool.shutdown();
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+}
@@ -5,14 +5,36 @@ import exceptions.DBNotFoundException;
 import exceptions.DBQueryException;
 import model.Page.Page;
 import model.Page.PageReference;
+import model.Index;
+import model.IndexNode;
 import model.Table;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Vector;
 
 public class SerializationManager {
     private static final String TABLES_DATA_FOLDER = "src/main/resources/Tables/";
     private static final String PAGES_Table_FOLDER = "Pages/";
     private static final String Indexes_TABLE_FOLDER = "Indexes/";
+    private static final String CHECKPOINT_MANIFEST = TABLES_DATA_FOLDER + "checkpoint.manifest";
+    private static final String STAGED_FILE_SUFFIX = ".tmp";
+
+    // Tables stay deserialized between DBApp calls, with the CHECKPOINT flush policy they are only written by checkpoint()
+    private static final Hashtable<String, Table> tables = new Hashtable<>();
+    private static final HashSet<String> dirtyTables = new HashSet<>();
+
+    // set while a checkpoint runs, files are then staged next to their targets instead of overwriting them
+    private static Vector<String> stagedFiles;
+    private static Vector<String> deletedFiles;
 
     // Delete all tables files and create a new folder
     public static void createTablesFolder() throws DBAppException {
@@ -20,6 +42,9 @@ public class SerializationManager {
 
         if (TablesFolder.exists())
             Utils.deleteFolder(TablesFolder);
+        BufferPool.clear();
+        tables.clear();
+        dirtyTables.clear();
 
         if (!TablesFolder.mkdirs())
             throw new DBQueryException("Failed to create Tables folder");
@@ -28,47 +53,268 @@ public class SerializationManager {
 
     public static void serializeTable(Table table) throws DBAppException {
         String tableName = table.getTableName();
-        String tablePath = TABLES_DATA_FOLDER + tableName + "/" + tableName + ".ser";
+        tables.put(tableName, table);
 
-        serialize(table, tablePath);
+        if (DBConfig.get().getFlushPolicy() == DBConfig.FlushPolicy.CHECKPOINT)
+            dirtyTables.add(tableName);
+        else
+            writeTable(table);
+    }
+
+    // Writes the index header and only the nodes that changed since it was last serialized,
+    // the files of the nodes dropped from the index meanwhile are deleted
+    public static void serializeIndex(Index index) throws DBAppException {
+        String tableName = index.getTableName();
+        String indexName = index.getIndexName();
+
+        for (IndexNode node : index.collectDirtyNodes())
+            serialize(node, Utils.getIndexNodePath(tableName, indexName, node.getNodeId()));
+        for (int nodeId : index.collectDetachedNodeIds())
+            deleteFile(Utils.getIndexNodePath(tableName, indexName, nodeId));
+
+        serialize(index, Utils.getIndexPath(tableName, indexName));
+    }
+
+    // Drops the cached table, its loaded index nodes and its pages without writing them, they are read again from their files
+    public static void discardTable(String tableName) {
+        tables.remove(tableName);
+        dirtyTables.remove(tableName);
+        BufferPool.invalidateTable(tableName);
+    }
+
+    public static Index deserializeIndex(String tableName, String indexName) throws DBAppException {
+        return (Index) deserialize(Utils.getIndexPath(tableName, indexName));
+    }
+
+    public static IndexNode deserializeIndexNode(String tableName, String indexName, int nodeId) throws DBAppException {
+        return (IndexNode) deserialize(Utils.getIndexNodePath(tableName, indexName, nodeId));
     }
 
     public static Table deserializeTable(String tableName) throws DBAppException {
-        String tablePath = TABLES_DATA_FOLDER + tableName + "/" + tableName + ".ser";
+        Table table = tables.get(tableName);
+        if (table != null)
+            return table;
 
-        Table table = (Table) deserialize(tablePath);
+        String tablePath = TABLES_DATA_FOLDER + tableName + "/" + tableName + ".ser";
+        table = (Table) deserialize(tablePath);
+        tables.put(tableName, table);
 
         return table;
     }
 
+    // Marks the page as dirty and unpins it, it is written to disk when evicted from the BufferPool or flushed
     public static void serializePage(Page page) throws DBAppException {
+        BufferPool.unpinPage(page, true);
+    }
+
+    // Returns a pinned page, must be followed by serializePage or releasePage
+    public static Page deserializePage(String tableName, PageReference pageRef) throws DBAppException {
+        return BufferPool.fetchPage(tableName, pageRef);
+    }
+
+    // Unpins a page that was only read
+    public static void releasePage(Page page) throws DBAppException {
+        BufferPool.unpinPage(page, false);
+    }
+
+    // Writes a page that no saved Table references yet straight to its file without caching it, used by bulk loads.
+    // A crash before the next checkpoint only leaves an unreferenced file behind.
+    public static void writeNewPage(Page page) throws DBAppException {
+        writePage(page);
+    }
+
+    // Removes the page from the BufferPool and deletes its file (at the next checkpoint with the CHECKPOINT flush policy)
+    public static void deletePage(String tableName, int pageIndex) throws DBAppException {
+        BufferPool.deletePage(tableName, pageIndex);
+    }
+
+    // Maps the page file into memory, the page is not cached in the BufferPool
+    public static PageView mapPage(String tableName, PageReference pageRef) throws DBAppException {
+        int pageIndex = pageRef.getPageIndex();
+        String PagePath = TABLES_DATA_FOLDER + tableName + "/" + PAGES_Table_FOLDER + pageIndex + ".ser";
+
+        try (FileChannel channel = FileChannel.open(Paths.get(PagePath), StandardOpenOption.READ)) {
+            return new PageView(tableName, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to map page");
+        }
+    }
+
+    static void writePage(Page page) throws DBAppException {
         String tableName = page.getTableName();
         int pageIndex = page.getPageIndex();
         String PagePath = TABLES_DATA_FOLDER + tableName + "/" + PAGES_Table_FOLDER + pageIndex + ".ser";
 
-        serialize(page, PagePath);
+        writeFile(PagePath, PageCodec.encode(page));
     }
 
-    public static Page deserializePage(String tableName, PageReference pageRef) throws DBAppException {
+    static void deletePageFile(String tableName, int pageIndex) {
+        String PagePath = TABLES_DATA_FOLDER + tableName + "/" + PAGES_Table_FOLDER + pageIndex + ".ser";
+
+        deleteFile(PagePath);
+    }
+
+    // Writes every table, index and page changed since the last checkpoint, then truncates the WriteAheadLog.
+    // All files are first staged and fsynced, then the manifest listing them is written and only then
+    // they replace their targets, so a crash leaves either the old files and the whole log or a manifest to finish.
+    public static void checkpoint() throws DBAppException {
+        stagedFiles = new Vector<>();
+        deletedFiles = new Vector<>();
+        Vector<String> manifest = new Vector<>();
+        try {
+            for (String tableName : dirtyTables)
+                writeTable(tables.get(tableName));
+            BufferPool.flushAll();
+
+            for (String filePath : stagedFiles)
+                manifest.add("R " + filePath);
+            for (String filePath : deletedFiles)
+                manifest.add("D " + filePath);
+        } catch (DBAppException e) {
+            for (String filePath : stagedFiles)
+                Utils.deleteFolder(new File(filePath + STAGED_FILE_SUFFIX));
+            throw e;
+        } finally {
+            stagedFiles = null;
+            deletedFiles = null;
+        }
+
+        File manifestFile = new File(CHECKPOINT_MANIFEST);
+        if (!manifest.isEmpty()) {
+            try {
+                File stagedManifest = new File(CHECKPOINT_MANIFEST + STAGED_FILE_SUFFIX);
+                writeSynced(stagedManifest, String.join("\n", manifest).getBytes());
+                Files.move(stagedManifest.toPath(), manifestFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new DBQueryException("Failed to write checkpoint manifest");
+            }
+            applyManifest(manifest);
+        }
+        if (WriteAheadLog.isOpen())
+            WriteAheadLog.truncate();
+        if (manifestFile.exists())
+            Utils.deleteFolder(manifestFile);
+        dirtyTables.clear();
+    }
+
+    // Called by DBApp.init() before the log is replayed.
+    // Finishes a checkpoint that crashed after writing its manifest (its operations are then already in the files,
+    // so the log is emptied), or drops the staged files of a checkpoint that crashed before.
+    public static void recoverCheckpoint() throws DBAppException {
+        Utils.createFolder(TABLES_DATA_FOLDER);
+        File manifestFile = new File(CHECKPOINT_MANIFEST);
+        if (manifestFile.exists()) {
+            try {
+                applyManifest(Files.readAllLines(manifestFile.toPath()));
+                Files.write(Paths.get(Utils.getLogFilePath()), new byte[0]);
+            } catch (IOException e) {
+                throw new DBQueryException("Failed to recover checkpoint");
+            }
+            Utils.deleteFolder(manifestFile);
+        } else
+            deleteStagedFiles(new File(TABLES_DATA_FOLDER));
+
+        tables.clear();
+        dirtyTables.clear();
+        BufferPool.clear();
+    }
+
+    static Page readPage(String tableName, PageReference pageRef) throws DBAppException {
         int pageIndex = pageRef.getPageIndex();
         String PagePath = TABLES_DATA_FOLDER + tableName + "/" + PAGES_Table_FOLDER + pageIndex + ".ser";
 
-        Page page = (Page) deserialize(PagePath);
+        Page page;
+        try {
+            page = PageCodec.decode(tableName, ByteBuffer.wrap(Files.readAllBytes(Paths.get(PagePath))));
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to deserialize page");
+        }
         page.setPageReference(pageRef);
 
         return page;
     }
 
     // Helper methods
+    // deleted when the checkpoint is applied if one is running
+    private static void deleteFile(String filePath) {
+        if (deletedFiles != null)
+            deletedFiles.add(filePath);
+        else if (new File(filePath).exists())
+            Utils.deleteFolder(new File(filePath));
+    }
+
+    private static void writeTable(Table table) throws DBAppException {
+        String tableName = table.getTableName();
+        String tablePath = TABLES_DATA_FOLDER + tableName + "/" + tableName + ".ser";
+
+        serialize(table, tablePath);
+
+        for (Index index : table.getLoadedIndices())
+            serializeIndex(index);
+    }
+
+    // Overwrites the file, or stages it as filePath.tmp (fsynced) while a checkpoint runs
+    private static void writeFile(String filePath, byte[] bytes) throws DBAppException {
+        try {
+            if (stagedFiles == null) {
+                Files.write(Paths.get(filePath), bytes);
+                return;
+            }
+
+            writeSynced(new File(filePath + STAGED_FILE_SUFFIX), bytes);
+            stagedFiles.add(filePath);
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to write " + filePath);
+        }
+    }
+
+    private static void writeSynced(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+            out.getFD().sync();
+        }
+    }
+
+    // Each line is "R path" (replace path by path.tmp) or "D path" (delete path), applying it twice is harmless
+    private static void applyManifest(List<String> manifest) throws DBAppException {
+        try {
+            for (String line : manifest) {
+                if (line.length() < 3)
+                    continue;
+                File file = new File(line.substring(2));
+                File stagedFile = new File(file.getPath() + STAGED_FILE_SUFFIX);
+
+                if (line.charAt(0) == 'R' && stagedFile.exists())
+                    Files.move(stagedFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (line.charAt(0) == 'D' && file.exists())
+                    Utils.deleteFolder(file);
+            }
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to apply checkpoint");
+        }
+    }
+
+    private static void deleteStagedFiles(File folder) {
+        File[] files = folder.listFiles();
+        if (files == null)
+            return;
+
+        for (File file : files)
+            if (file.isDirectory())
+                deleteStagedFiles(file);
+            else if (file.getName().endsWith(STAGED_FILE_SUFFIX))
+                Utils.deleteFolder(file);
+    }
+
     private static void serialize(Object obj, String filePath) throws DBAppException {
         try {
-            FileOutputStream fileOut = new FileOutputStream(filePath);
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
 
             out.writeObject(obj);
 
             out.close();
-            fileOut.close();
+            writeFile(filePath, bytes.toByteArray());
         } catch (IOException e) {
             throw new DBQueryException("Failed to serialize object");
         }
@@ -1,10 +1,8 @@
 package utils;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.util.Properties;
 import java.util.Vector;
+import java.util.function.IntPredicate;
 
 public class Utils {
     private static final String TABLES_DATA_FOLDER = "src/main/resources/Tables/";
@@ -37,6 +35,19 @@ public class Utils {
         return keyFound ? mid : -(low + 1);
     }
 
+    // isBefore must be true for a prefix of [0, size) and false after it, returns the length of that prefix
+    public static int lowerBound(int size, IntPredicate isBefore) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (isBefore.test(mid))
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
 
     public static int getInsertionIndex(int index) {
         if (index < 0)
@@ -44,14 +55,6 @@ public class Utils {
         return index;
     }
 
-    public static int getMaxRowsCountInPage() throws IOException {
-        Properties prop = new Properties();
-        FileInputStream configPath = new FileInputStream("src/main/resources/DBApp.config");
-        prop.load(configPath);
-
-        return Integer.parseInt(prop.getProperty("MaximumRowsCountInTablePage"));
-    }
-
     // Helper function to delete a folder
     public static void deleteFolder(File f) {
         if (f.isDirectory())
@@ -90,4 +93,16 @@ public class Utils {
     public static String getIndexPath(String strTableName, String indexName) {
         return TABLES_DATA_FOLDER + strTableName + "/" + Indexes_TABLE_FOLDER + indexName + ".ser";
     }
+
+    public static String getIndexNodesFolderPath(String strTableName, String indexName) {
+        return TABLES_DATA_FOLDER + strTableName + "/" + Indexes_TABLE_FOLDER + indexName + "/";
+    }
+
+    public static String getIndexNodePath(String strTableName, String indexName, int nodeId) {
+        return TABLES_DATA_FOLDER + strTableName + "/" + Indexes_TABLE_FOLDER + indexName + "/" + nodeId + ".ser";
+    }
+
+    public static String getLogFilePath() {
+        return TABLES_DATA_FOLDER + "wal.log";
+    }
 }
@@ -3,8 +3,9 @@ package utils;
 import exceptions.DBAppException;
 import exceptions.DBSchemaException;
 import model.SQLTerm;
+import model.Schema.Column;
+import model.Schema.TableSchema;
 
-import java.io.File;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -12,8 +13,7 @@ import java.util.*;
 public class Validation {
 
     public static boolean isTableExists(String strTableName) {
-        String tableFile = Utils.getTableFilePath(strTableName);
-        return new File(tableFile).exists();
+        return Catalog.isTableExists(strTableName);
     }
 
     public static boolean areAllowedDataTypes(Hashtable<String, String> htblColNameType) {
@@ -26,14 +26,12 @@ public class Validation {
         return true;
     }
 
-    // check if column names are unique & exist, types satisfy schema.
-    public static boolean validateSchema(Map<String, Object> htblColNameValue,
-                                         Map<String, Hashtable<String, String>> htblColNameMetaData) throws DBAppException {
-        for (String colName : htblColNameValue.keySet()) {
-            Hashtable<String, String> colMetaData = htblColNameMetaData.get(colName);
-            String type = colMetaData.get("ColumnType");
-            Object value = htblColNameValue.get(colName);
-            if (!isNeededType(value, type) || !isMidValue(value, colMetaData.get("Min"), colMetaData.get("Max")))
+    // check if column names exist, types and values satisfy schema.
+    public static boolean validateSchema(Map<String, Object> htblColNameValue, TableSchema schema) {
+        for (Map.Entry<String, Object> entry : htblColNameValue.entrySet()) {
+            Column column = schema.getColumn(entry.getKey());
+            Object value = entry.getValue();
+            if (column == null || !column.getType().isInstance(value) || !column.isInRange(value))
                 return false;
         }
         return true;
@@ -111,19 +109,6 @@ public class Validation {
         return false;
     }
 
-    public static boolean isMidValue(Object value, String min, String max) throws DBAppException {
-        Comparable compValue = (Comparable) value;
-        if (isString(value))
-            return compValue.compareTo(min) >= 0 && ((String) value).compareTo(max) <= 0;
-        if (isInteger(value))
-            return compValue.compareTo(Integer.parseInt(min)) >= 0 && ((Integer) value).compareTo(Integer.parseInt(max)) <= 0;
-        if (isDouble(value))
-            return compValue.compareTo(Double.parseDouble(min)) >= 0 && ((Double) value).compareTo(Double.parseDouble(max)) <= 0;
-        if (isDate(value))
-            return compValue.compareTo(getComparable(min, "date")) >= 0 && compValue.compareTo(getComparable(max, "date")) <= 0;
-        return false;
-    }
-
     public static Comparable getComparable(String obj, String type) throws DBAppException {
         type = type.toLowerCase();
         if (type.contains("string"))
@@ -171,61 +156,6 @@ public class Validation {
         return null;
     }
 
-    public static Comparable getMidComparable(Comparable x, Comparable y) {
-        if (x instanceof String)
-            return getMidString((String) x, (String) y);
-        if (x instanceof Integer)
-            return ((Integer) x + (Integer) y) / 2;
-        if (x instanceof Double)
-            return ((Double) x + (Double) y) / 2;
-        if (x instanceof Date)
-            return getMidDate((Date) x, (Date) y);
-        return null;
-    }
-
-    private static String getMidString(String S, String T) {
-        int N = Math.min(S.length(), T.length());
-        int[] a1 = new int[N + 1];
-
-        for (int i = 0; i < N; i++)
-            a1[i + 1] = (int) S.charAt(i) - 97
-                    + (int) T.charAt(i) - 97;
-
-        // Iterate from right to left
-        // and add carry to next position
-        for (int i = N; i >= 1; i--) {
-            a1[i - 1] += (int) a1[i] / 26;
-            a1[i] %= 26;
-        }
-
-        // Reduce the number to find the middle
-        // string by dividing each position by 2
-        for (int i = 0; i <= N; i++) {
-            // If current value is odd,
-            // carry 26 to the next index value
-            if ((a1[i] & 1) != 0)
-                if (i + 1 <= N)
-                    a1[i + 1] += 26;
-
-            a1[i] = (int) a1[i] / 2;
-        }
-
-        String ans = "";
-        for (int i = 1; i <= N; i++)
-            ans += (char) (a1[i] + 97);
-        return ans;
-
-    }
-
-    private static Date getMidDate(Date startDate, Date endDate) {
-        // Calculate the middle point in milliseconds
-        long timeDifference = endDate.getTime() - startDate.getTime();
-        long middlePoint = startDate.getTime() + (timeDifference / 2);
-
-        // Create the middle date
-        return new Date(middlePoint);
-    }
-
     private static boolean isString(Object obj) {
         return obj instanceof String;
     }
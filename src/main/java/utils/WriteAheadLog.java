@@ -0,0 +1,230 @@
+package utils;
+
+import exceptions.DBAppException;
+import exceptions.DBQueryException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Vector;
+import java.util.zip.CRC32;
+
+// Append-only log of the DBApp operations applied since the last checkpoint.
+// Every entry is | payload length (int) | CRC32 of payload (long) | serialized LogRecord |.
+// append() only buffers the entry in memory, commit() makes it durable. Writers that commit while
+// another writer is syncing wait for it and are then synced together with one force() (group commit).
+public class WriteAheadLog {
+    private static final int ENTRY_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    private static final Object lock = new Object();
+    private static final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    private static FileChannel channel;
+    private static long appendedLsn; // last appended entry
+    private static long durableLsn; // last entry written and forced to disk
+    private static boolean isSyncing;
+    private static int recordsCount; // entries since the last truncate
+    private static long syncCount;
+
+    public static void open() throws DBAppException {
+        synchronized (lock) {
+            if (channel != null)
+                return;
+            try {
+                channel = FileChannel.open(Paths.get(Utils.getLogFilePath()), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            } catch (IOException e) {
+                throw new DBQueryException("Failed to open log file");
+            }
+        }
+    }
+
+    public static void close() throws DBAppException {
+        synchronized (lock) {
+            if (channel == null)
+                return;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new DBQueryException("Failed to close log file");
+            }
+            channel = null;
+            pending.reset();
+            appendedLsn = durableLsn = 0;
+            recordsCount = 0;
+        }
+    }
+
+    public static boolean isOpen() {
+        synchronized (lock) {
+            return channel != null;
+        }
+    }
+
+    // returns the log sequence number to pass to commit()
+    public static long append(LogRecord record) throws DBAppException {
+        byte[] payload = toBytes(record);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        synchronized (lock) {
+            if (channel == null)
+                throw new DBQueryException("Log is not open");
+
+            ByteBuffer header = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+            header.putInt(payload.length);
+            header.putLong(crc.getValue());
+            pending.writeBytes(header.array());
+            pending.writeBytes(payload);
+
+            recordsCount++;
+            return ++appendedLsn;
+        }
+    }
+
+    // Returns once the entry lsn and all entries before it are on disk
+    public static void commit(long lsn) throws DBAppException {
+        byte[] batch;
+        long batchLsn;
+        synchronized (lock) {
+            while (durableLsn < lsn && isSyncing)
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DBQueryException("Interrupted while committing");
+                }
+            if (durableLsn >= lsn)
+                return;
+
+            // this writer syncs every entry appended so far, including other writers' entries
+            isSyncing = true;
+            batch = pending.toByteArray();
+            batchLsn = appendedLsn;
+            pending.reset();
+        }
+
+        boolean isSynced = false;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            channel.force(false);
+            isSynced = true;
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to write log");
+        } finally {
+            synchronized (lock) {
+                isSyncing = false;
+                if (isSynced) {
+                    durableLsn = batchLsn;
+                    syncCount++;
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // Makes every appended entry durable, so readRecords() returns them
+    public static void commitAll() throws DBAppException {
+        long lsn;
+        synchronized (lock) {
+            lsn = appendedLsn;
+        }
+        commit(lsn);
+    }
+
+    // Called by the checkpoint once every logged operation is in the table files
+    public static void truncate() throws DBAppException {
+        synchronized (lock) {
+            while (isSyncing)
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DBQueryException("Interrupted while truncating log");
+                }
+            try {
+                channel.truncate(0);
+                channel.position(0);
+                channel.force(true);
+            } catch (IOException e) {
+                throw new DBQueryException("Failed to truncate log");
+            }
+            pending.reset();
+            durableLsn = appendedLsn;
+            recordsCount = 0;
+        }
+    }
+
+    // Reads the entries of the log file, stops at the first torn or corrupted entry
+    public static Vector<LogRecord> readRecords() throws DBAppException {
+        Vector<LogRecord> records = new Vector<>();
+        File logFile = new File(Utils.getLogFilePath());
+        if (!logFile.exists())
+            return records;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(logFile)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                long checksum = in.readLong();
+                if (length < 0 || length > logFile.length())
+                    break;
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != checksum)
+                    break;
+                records.add((LogRecord) fromBytes(payload));
+            }
+        } catch (EOFException e) {
+            // torn last entry, it was never committed
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to read log");
+        }
+        return records;
+    }
+
+    public static int getRecordsCount() {
+        synchronized (lock) {
+            return recordsCount;
+        }
+    }
+
+    public static long getSyncCount() {
+        synchronized (lock) {
+            return syncCount;
+        }
+    }
+
+    // Helper methods
+    private static byte[] toBytes(Object obj) throws DBAppException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(obj);
+            out.close();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new DBQueryException("Failed to serialize log record");
+        }
+    }
+
+    private static Object fromBytes(byte[] bytes) throws DBAppException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new DBQueryException("Failed to deserialize log record");
+        }
+    }
+}